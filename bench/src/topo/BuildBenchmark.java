@@ -0,0 +1,57 @@
+package topo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Построение графа из готовых списков рёбер
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class BuildBenchmark {
+
+    @Param({"chain", "fanout", "layered", "dense"})
+    public String shape;
+
+    @Param({"1000", "100000", "10000000"})
+    public int edges;
+
+    private GraphShapes data;
+    private String[] names;
+    private int[] coordinates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = GraphShapes.generate(shape, edges);
+        names = data.names();
+        coordinates = new int[data.vertexCount];
+    }
+
+    @Benchmark
+    public Graph buildGraph() {
+        List<Vertex> vertices = data.vertices();
+        Graph graph = new Graph(vertices);
+        graph.addEdges(data.sources, data.targets);
+        return graph;
+    }
+
+    @Benchmark
+    public Graph buildGraphEdgeByEdge() {
+        List<Vertex> vertices = data.vertices();
+        Graph graph = new Graph(vertices);
+        for (int i = 0; i < data.edgeCount; i++) {
+            graph.addEdge(vertices.get(data.sources[i]), vertices.get(data.targets[i]));
+        }
+        return graph;
+    }
+
+    @Benchmark
+    public CsrGraph buildCsr() {
+        return CsrGraph.fromEdges(names, coordinates, coordinates, data.sources, data.targets, data.edgeCount);
+    }
+}
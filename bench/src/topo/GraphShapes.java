@@ -0,0 +1,193 @@
+package topo;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Детерминированные формы графов для бенчмарков.
+ * Каждая форма строит ациклический граф с заданным числом рёбер.
+ */
+public final class GraphShapes {
+    private static final long SEED = 20240627L;
+    private static final int LAYERED_OUT_DEGREE = 8;
+
+    public final int vertexCount;
+    public final int edgeCount;
+    public final int[] sources;
+    public final int[] targets;
+
+    private GraphShapes(int vertexCount, int[] sources, int[] targets) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = sources.length;
+        this.sources = sources;
+        this.targets = targets;
+    }
+
+    /**
+     * Строит граф заданной формы
+     *
+     * @param shape chain, fanout, layered или dense
+     * @param edges количество рёбер
+     * @return рёбра графа
+     */
+    public static GraphShapes generate(String shape, int edges) {
+        return switch (shape) {
+            case "chain" -> chain(edges);
+            case "fanout" -> fanout(edges);
+            case "layered" -> layered(edges);
+            case "dense" -> dense(edges);
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        };
+    }
+
+    // Длинная цепочка 0 -> 1 -> ... -> m
+    private static GraphShapes chain(int m) {
+        int[] s = new int[m];
+        int[] t = new int[m];
+        for (int i = 0; i < m; i++) {
+            s[i] = i;
+            t[i] = i + 1;
+        }
+        return new GraphShapes(m + 1, s, t);
+    }
+
+    // Одна вершина с рёбрами во все остальные
+    private static GraphShapes fanout(int m) {
+        int[] s = new int[m];
+        int[] t = new int[m];
+        for (int i = 0; i < m; i++) {
+            t[i] = i + 1;
+        }
+        return new GraphShapes(m + 1, s, t);
+    }
+
+    // Случайные рёбра между соседними слоями
+    private static GraphShapes layered(int m) {
+        int n = Math.max(16, m / LAYERED_OUT_DEGREE);
+        int layers = Math.max(2, (int) Math.sqrt(n));
+        int width = n / layers;
+        n = width * layers;
+        if ((long) width * width * (layers - 1) < m) {
+            throw new IllegalArgumentException("Too many edges for layered shape: " + m);
+        }
+
+        Random random = new Random(SEED);
+        LongHashSet seen = new LongHashSet(m);
+        int[] s = new int[m];
+        int[] t = new int[m];
+        int k = 0;
+        while (k < m) {
+            int layer = random.nextInt(layers - 1);
+            int from = layer * width + random.nextInt(width);
+            int to = (layer + 1) * width + random.nextInt(width);
+            if (seen.add(((long) from << 32) | to)) {
+                s[k] = from;
+                t[k] = to;
+                k++;
+            }
+        }
+        return new GraphShapes(n, s, t);
+    }
+
+    // Почти полный граф: первые m пар i < j в лексикографическом порядке
+    private static GraphShapes dense(int m) {
+        int n = 2;
+        while ((long) n * (n - 1) / 2 < m) {
+            n++;
+        }
+        int[] s = new int[m];
+        int[] t = new int[m];
+        int k = 0;
+        for (int i = 0; i < n && k < m; i++) {
+            for (int j = i + 1; j < n && k < m; j++) {
+                s[k] = i;
+                t[k] = j;
+                k++;
+            }
+        }
+        return new GraphShapes(n, s, t);
+    }
+
+    /**
+     * @return имена вершин "v0", "v1", ...
+     */
+    public String[] names() {
+        String[] names = new String[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            names[i] = "v" + i;
+        }
+        return names;
+    }
+
+    /**
+     * @return новые вершины без рёбер
+     */
+    public List<Vertex> vertices() {
+        List<Vertex> vertices = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            vertices.add(new Vertex("v" + i, i % 1000, i / 1000));
+        }
+        return vertices;
+    }
+
+    /**
+     * @return CSR-представление графа
+     */
+    public CsrGraph csr() {
+        return CsrGraph.fromEdges(names(), new int[vertexCount], new int[vertexCount],
+                                  sources, targets, edgeCount);
+    }
+
+    /**
+     * @return граф с вершинами и рёбрами
+     */
+    public Graph graph() {
+        Graph graph = new Graph(vertices());
+        graph.addEdges(sources, targets);
+        return graph;
+    }
+
+    /**
+     * Записывает граф во временный файл в формате .graph
+     *
+     * @return путь к файлу
+     * @throws IOException при ошибке записи
+     */
+    public Path writeJson() throws IOException {
+        Path path = Files.createTempFile("bench-", ".graph");
+        path.toFile().deleteOnExit();
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(writer)) {
+            json.beginObject();
+            json.name("vertices").beginArray();
+            for (int i = 0; i < vertexCount; i++) {
+                json.beginObject();
+                json.name("x").value(i % 1000);
+                json.name("y").value(i / 1000);
+                json.name("name").value("v" + i);
+                json.name("radius").value(20);
+                json.name("background").value("#ffffff");
+                json.endObject();
+            }
+            json.endArray();
+            json.name("edges").beginArray();
+            for (int i = 0; i < edgeCount; i++) {
+                json.beginObject();
+                json.name("vertex1").value(sources[i]);
+                json.name("vertex2").value(targets[i]);
+                json.name("isDirected").value(true);
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        return path;
+    }
+}
@@ -0,0 +1,47 @@
+package topo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Разбор JSON-файла .graph в Graph и в CsrGraph
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ParseBenchmark {
+
+    @Param({"chain", "fanout", "layered", "dense"})
+    public String shape;
+
+    @Param({"1000", "100000", "10000000"})
+    public int edges;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = GraphShapes.generate(shape, edges).writeJson();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Graph parseGraph() throws Exception {
+        return GraphParser.parseFromFile(file);
+    }
+
+    @Benchmark
+    public CsrGraph parseCsr() throws Exception {
+        return GraphParser.parseCsrFromFile(file);
+    }
+}
@@ -0,0 +1,100 @@
+package topo;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Полная сортировка вперёд, сортировка вперёд с последующим откатом до начала
+ * и переходы seek к произвольным позициям уже пройденного порядка
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class SortBenchmark {
+
+    @Param({"chain", "fanout", "layered", "dense"})
+    public String shape;
+
+    @Param({"1000", "100000", "10000000"})
+    public int edges;
+
+    private CsrGraph csr;
+    private Graph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GraphShapes data = GraphShapes.generate(shape, edges);
+        csr = data.csr();
+        graph = data.graph();
+    }
+
+    @Benchmark
+    public long forwardSort() {
+        TopologicalSorter sorter = new TopologicalSorter(csr);
+        long checksum = 0;
+        while (sorter.hasNext()) {
+            checksum += sorter.nextIndex();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long forwardSortVertices() {
+        TopologicalSorter sorter = new TopologicalSorter(graph);
+        long checksum = 0;
+        while (sorter.hasNext()) {
+            checksum += sorter.next().getX();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long forwardThenBackward() {
+        TopologicalSorter sorter = new TopologicalSorter(csr);
+        long checksum = 0;
+        int steps = 0;
+        while (sorter.hasNext()) {
+            checksum += sorter.nextIndex();
+            steps++;
+        }
+        for (int i = 0; i < steps; i++) {
+            checksum -= sorter.prevIndex();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long forwardThenBackwardByName() {
+        TopologicalSorter sorter = new TopologicalSorter(csr, PriorityPolicy.byName());
+        long checksum = 0;
+        int steps = 0;
+        while (sorter.hasNext()) {
+            checksum += sorter.nextIndex();
+            steps++;
+        }
+        for (int i = 0; i < steps; i++) {
+            checksum -= sorter.prevIndex();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long seekAcrossSortedPrefix() {
+        TopologicalSorter sorter = new TopologicalSorter(csr);
+        int n = sorter.seek(csr.vertexCount());
+        long checksum = 0;
+        // Шаг 7919 взаимно прост почти с любым n, поэтому позиции обходят весь префикс
+        for (int i = 0, step = 0; i < 10_000; i++, step = (step + 7919) % (n + 1)) {
+            checksum += sorter.seek(step);
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int[] parallelLayers() {
+        return new ParallelLayeredSorter(csr).order();
+    }
+}
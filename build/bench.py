@@ -0,0 +1,171 @@
+"""Скрипт для сборки и запуска JMH-бенчмарков
+
+Бенчмарки лежат в BENCH_DIR/src в пакете topo. JMH не поддерживает бенчмарки
+в пакете по умолчанию, а классы проекта лежат именно в нём, поэтому скрипт
+копирует исходники проекта (кроме JavaFX-части) во временную директорию,
+добавляя им объявление пакета topo, и компилирует их вместе с бенчмарками.
+Результаты сохраняются в формате JSON в OUT_DIR/bench.
+"""
+
+from loguru import logger as log
+from pathlib import Path
+from urllib.error import URLError
+from datetime import datetime
+from utils import find_java_files, find_jars, clean_out_dir
+
+import os
+import sys
+import subprocess
+import urllib.request
+
+from dotenv import find_dotenv, dotenv_values
+config = dotenv_values(find_dotenv())
+
+SRC_DIR = Path(config.get("SRC_DIR"))
+LIB_DIR = Path(config.get("LIB_DIR"))
+OUT_DIR = Path(config.get("OUT_DIR"))
+TMP_DIR = Path(config.get("TMP_DIR"))
+BENCH_DIR = Path(config.get("BENCH_DIR", "bench"))
+JMH_VERSION = config.get("JMH_VERSION", "1.37")
+
+BENCH_PACKAGE = "topo"
+JMH_LIB_DIR = TMP_DIR / "jmh" / "lib"
+STAGING_DIR = TMP_DIR / "jmh" / "src"
+CLASSES_DIR = TMP_DIR / "jmh" / "classes"
+RESULTS_DIR = OUT_DIR / "bench"
+
+MAVEN_CENTRAL = "https://repo1.maven.org/maven2"
+JMH_ARTIFACTS = [
+    ("org/openjdk/jmh", "jmh-core", JMH_VERSION),
+    ("org/openjdk/jmh", "jmh-generator-annprocess", JMH_VERSION),
+    ("net/sf/jopt-simple", "jopt-simple", "5.0.4"),
+    ("org/apache/commons", "commons-math3", "3.6.1"),
+]
+
+
+def download_jmh() -> list[str]:
+    """
+    Скачивает jar-архивы JMH и его зависимостей из Maven Central, если их ещё нет.
+
+    :return: Список путей к jar-архивам JMH.
+    :raises RuntimeError: при ошибке скачивания.
+    """
+    JMH_LIB_DIR.mkdir(parents=True, exist_ok=True)
+    jars = []
+    for group, artifact, version in JMH_ARTIFACTS:
+        jar = JMH_LIB_DIR / f"{artifact}-{version}.jar"
+        if not jar.exists():
+            url = f"{MAVEN_CENTRAL}/{group}/{artifact}/{version}/{artifact}-{version}.jar"
+            log.debug(f"Скачивание {url}")
+            try:
+                urllib.request.urlretrieve(url, jar)
+            except URLError as e:
+                raise RuntimeError(f"Ошибка при скачивании {artifact}: {e}") from e
+        jars.append(str(jar))
+    return jars
+
+
+def stage_sources() -> list[str]:
+    """
+    Копирует исходники проекта без JavaFX-зависимостей в пакет topo
+    и добавляет к ним исходники бенчмарков.
+
+    :return: Список путей к подготовленным java-файлам.
+    """
+    package_dir = STAGING_DIR / BENCH_PACKAGE
+    clean_out_dir(STAGING_DIR)
+    package_dir.mkdir(parents=True, exist_ok=True)
+
+    staged = []
+    for source in map(Path, find_java_files(SRC_DIR)):
+        text = source.read_text(encoding="utf-8")
+        if "import javafx." in text:
+            log.debug(f"Пропуск JavaFX-класса {source.name}")
+            continue
+        target = package_dir / source.name
+        target.write_text(f"package {BENCH_PACKAGE};\n\n{text}", encoding="utf-8")
+        staged.append(str(target))
+
+    staged += find_java_files(BENCH_DIR / "src")
+    return staged
+
+
+def compile_benchmarks(sources: list[str], jmh_jars: list[str]) -> str:
+    """
+    Компилирует исходники вместе с бенчмарками, запуская генератор JMH.
+
+    :param sources: Список java-файлов.
+    :param jmh_jars: Jar-архивы JMH.
+    :return: Classpath для запуска бенчмарков.
+    :raises RuntimeError: при ошибке компиляции.
+    """
+    clean_out_dir(CLASSES_DIR)
+    classpath = os.pathsep.join([str(CLASSES_DIR)] + find_jars(LIB_DIR) + jmh_jars)
+
+    javac_cmd = [
+        "javac",
+        "-encoding", "UTF-8",
+        "-d", str(CLASSES_DIR),
+        "-classpath", classpath,
+        "-processorpath", os.pathsep.join(jmh_jars),
+    ] + sources
+
+    log.info("Компиляция бенчмарков...")
+    log.debug(" ".join(javac_cmd))
+    result = subprocess.run(javac_cmd, text=True, capture_output=True)
+    if result.returncode != 0:
+        raise RuntimeError(f"Ошибка компиляции бенчмарков: {result.stdout}\n{result.stderr}")
+    return classpath
+
+
+def run_benchmarks(classpath: str, jmh_args: list[str]) -> Path:
+    """
+    Запускает JMH с профилировщиком GC и записью результатов в JSON.
+
+    :param classpath: Classpath с бенчмарками и JMH.
+    :param jmh_args: Дополнительные аргументы JMH (фильтр, параметры и т.д.).
+    :return: Путь к файлу с результатами.
+    :raises RuntimeError: если JMH завершился с ошибкой.
+    """
+    RESULTS_DIR.mkdir(parents=True, exist_ok=True)
+    results = RESULTS_DIR / f"jmh-{datetime.now().strftime('%Y%m%d-%H%M%S')}.json"
+
+    java_cmd = [
+        "java", "-cp", classpath, "org.openjdk.jmh.Main",
+        "-prof", "gc",
+        "-rf", "json",
+        "-rff", str(results),
+    ] + jmh_args
+
+    log.info("Запуск бенчмарков...")
+    log.debug(" ".join(java_cmd))
+    result = subprocess.run(java_cmd)
+    if result.returncode != 0:
+        raise RuntimeError(f"JMH завершился с кодом {result.returncode}")
+    return results
+
+
+def main():
+    """
+    Точка входа в скрипт. Аргументы командной строки передаются JMH как есть,
+    например: python3 -u ./build/bench.py SortBenchmark -p shape=chain -p edges=1000
+    """
+    try:
+        jmh_jars = download_jmh()
+        classpath = compile_benchmarks(stage_sources(), jmh_jars)
+        results = run_benchmarks(classpath, sys.argv[1:])
+    except RuntimeError as e:
+        log.error(f"{e}")
+        sys.exit(1)
+    except Exception as e:
+        log.critical(f"Неожиданная ошибка: {e}")
+        sys.exit(1)
+    except KeyboardInterrupt:
+        log.warning(f"Скрипт прерван пользователем.")
+        sys.exit(1)
+    else:
+        log.success(f"Результаты бенчмарков сохранены в {results}")
+
+
+if __name__ == "__main__":
+    main()
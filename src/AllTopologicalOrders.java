@@ -0,0 +1,560 @@
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Все топологические порядки графа: ленивый перебор, подсчёт и проверка единственности.
+ *
+ * Перебор - поиск с возвратом на тех же приёмах, что и TopologicalSorter: массив
+ * степеней входа и журнал "сколько вершин стало готово на шаге" для отката.
+ * Готовые вершины лежат в массиве; чтобы взять i-ю, она меняется местами с последней,
+ * а откат возвращает массив ровно в прежнее состояние, так что переход к следующему
+ * порядку стоит O(изменённого суффикса) и ничего не копирует.
+ *
+ * Подсчёт раскладывает граф на последовательные и параллельные части:
+ * число порядков независимых компонент - мультиномиальный коэффициент, умноженный
+ * на их числа порядков, а при последовательной композиции (все вершины части A
+ * предшествуют всем вершинам части B) числа порядков перемножаются. Неразложимые
+ * части до SUBSET_LIMIT вершин считаются динамикой по подмножествам, более крупные -
+ * динамикой по идеалам (множествам уже выписанных вершин) с ограничением числа состояний.
+ */
+public final class AllTopologicalOrders implements Iterable<List<Vertex>> {
+    // До 20 вершин число порядков (не больше 20!) помещается в long
+    private static final int SUBSET_LIMIT = 20;
+    // Ограничение числа идеалов на одном уровне динамики для крупных частей
+    private static final int MAX_IDEAL_STATES = 1 << 20;
+
+    private final CsrGraph csr;
+    private final boolean acyclic;
+
+    /**
+     * @param graph граф
+     */
+    public AllTopologicalOrders(IConstGraph graph) {
+        this.csr = CsrGraph.fromGraph(graph);
+        this.acyclic = CycleDetector.findCycle(csr).length == 0;
+    }
+
+    /**
+     * Перебирает порядки лениво. Для экономии памяти итератор каждый раз
+     * возвращает одно и то же представление над внутренним массивом: список
+     * корректен до следующего вызова next(), и его нужно скопировать, если
+     * порядок нужен дольше. В графе с циклом порядков нет.
+     *
+     * @return итератор по всем топологическим порядкам
+     */
+    @Override
+    public Iterator<List<Vertex>> iterator() {
+        return new OrderIterator();
+    }
+
+    /**
+     * Возвращает копии первых порядков перебора
+     *
+     * @param limit максимальное число порядков
+     * @return не больше limit порядков
+     */
+    public List<List<Vertex>> first(int limit) {
+        List<List<Vertex>> orders = new ArrayList<>();
+        Iterator<List<Vertex>> it = iterator();
+        while (orders.size() < limit && it.hasNext()) {
+            orders.add(List.copyOf(it.next()));
+        }
+        return orders;
+    }
+
+    /**
+     * Проверяет, единственен ли топологический порядок, за O(V + E).
+     * Проход Кана останавливается на первом шаге, где готовы сразу две вершины.
+     *
+     * @return true, если граф ацикличен и имеет ровно один порядок
+     */
+    public boolean isUnique() {
+        if (!acyclic) {
+            return false;
+        }
+        int n = csr.vertexCount();
+        int[] inDegree = inDegrees();
+        int ready = -1;
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) {
+                if (ready >= 0) {
+                    return false;
+                }
+                ready = v;
+            }
+        }
+        for (int step = 0; step < n; step++) {
+            int v = ready;
+            ready = -1;
+            for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                int w = csr.target(e);
+                if (--inDegree[w] == 0) {
+                    if (ready >= 0) {
+                        return false;
+                    }
+                    ready = w;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Считает число топологических порядков точно
+     *
+     * @return число порядков (0 для графа с циклом)
+     * @throws IllegalStateException если в графе есть неразложимая часть
+     *         слишком большой ширины для динамики по идеалам
+     */
+    public BigInteger count() {
+        if (!acyclic) {
+            return BigInteger.ZERO;
+        }
+        int[] all = new int[csr.vertexCount()];
+        for (int v = 0; v < all.length; v++) {
+            all[v] = v;
+        }
+        return count(all);
+    }
+
+    private int[] inDegrees() {
+        int[] inDegree = new int[csr.vertexCount()];
+        for (int e = 0; e < csr.edgeCount(); e++) {
+            inDegree[csr.target(e)]++;
+        }
+        return inDegree;
+    }
+
+    // Итератор поиска с возвратом; всё состояние - несколько массивов длины n
+    private final class OrderIterator implements Iterator<List<Vertex>> {
+        private final int n = csr.vertexCount();
+        private final int[] inDegree = inDegrees();
+        private final int[] order = new int[n];
+        // ready[0..readyCount) - готовые вершины
+        private final int[] ready = new int[n];
+        private int readyCount;
+        // Для шага d: номер выбранной готовой вершины и сколько вершин стало готово
+        private final int[] choice = new int[n];
+        private final int[] addedCount = new int[n];
+        private int depth;
+        private boolean hasPending;
+        private boolean finished;
+
+        private final List<Vertex> view = new AbstractList<>() {
+            @Override
+            public Vertex get(int index) {
+                Objects.checkIndex(index, n);
+                return csr.vertexAt(order[index]);
+            }
+
+            @Override
+            public int size() {
+                return n;
+            }
+        };
+
+        OrderIterator() {
+            if (!acyclic) {
+                finished = true;
+                return;
+            }
+            for (int v = 0; v < n; v++) {
+                if (inDegree[v] == 0) {
+                    ready[readyCount++] = v;
+                }
+            }
+            descend();
+            hasPending = true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!hasPending && !finished) {
+                if (backtrack()) {
+                    descend();
+                    hasPending = true;
+                } else {
+                    finished = true;
+                }
+            }
+            return hasPending;
+        }
+
+        @Override
+        public List<Vertex> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more orders");
+            }
+            hasPending = false;
+            return view;
+        }
+
+        // В ацикличном графе всегда есть готовая вершина, так что спуск доходит до конца
+        private void descend() {
+            while (depth < n) {
+                apply(0);
+            }
+        }
+
+        // Откатывает шаги, пока на каком-то не найдётся ещё не испробованная готовая вершина
+        private boolean backtrack() {
+            while (depth > 0) {
+                int tried = undo();
+                if (tried + 1 < readyCount) {
+                    apply(tried + 1);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void apply(int index) {
+            int d = depth++;
+            choice[d] = index;
+            swap(index, readyCount - 1);
+            int v = ready[--readyCount];
+            order[d] = v;
+            int before = readyCount;
+            for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                int w = csr.target(e);
+                if (--inDegree[w] == 0) {
+                    ready[readyCount++] = w;
+                }
+            }
+            addedCount[d] = readyCount - before;
+        }
+
+        private int undo() {
+            int d = --depth;
+            int v = order[d];
+            readyCount -= addedCount[d];
+            for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                inDegree[csr.target(e)]++;
+            }
+            ready[readyCount++] = v;
+            swap(choice[d], readyCount - 1);
+            return choice[d];
+        }
+
+        private void swap(int i, int j) {
+            int t = ready[i];
+            ready[i] = ready[j];
+            ready[j] = t;
+        }
+    }
+
+    // Подсчёт порядков подграфа, порождённого вершинами part
+    private BigInteger count(int[] part) {
+        if (part.length <= 1) {
+            return BigInteger.ONE;
+        }
+        Part local = new Part(csr, part);
+        if (part.length <= SUBSET_LIMIT) {
+            return BigInteger.valueOf(local.countBySubsets());
+        }
+
+        List<int[]> components = local.components();
+        if (components.size() > 1) {
+            // Порядки независимых частей перемешиваются произвольно:
+            // n! / (k1! * k2! * ...) * (порядки первой) * (порядки второй) * ...
+            List<BigInteger> factors = new ArrayList<>();
+            List<BigInteger> divisors = new ArrayList<>();
+            for (int[] component : components) {
+                if (component.length > 1) {
+                    factors.add(count(component));
+                    divisors.add(product(2, component.length));
+                }
+            }
+            factors.add(product(2, part.length));
+            return multiplyAll(factors, 0, factors.size()).divide(multiplyAll(divisors, 0, divisors.size()));
+        }
+
+        List<int[]> pieces = local.seriesPieces();
+        if (pieces.size() > 1) {
+            List<BigInteger> factors = new ArrayList<>(pieces.size());
+            for (int[] piece : pieces) {
+                if (piece.length > 1) {
+                    factors.add(count(piece));
+                }
+            }
+            return multiplyAll(factors, 0, factors.size());
+        }
+        return local.countByIdeals();
+    }
+
+    private static BigInteger multiplyAll(List<BigInteger> factors, int from, int to) {
+        if (to - from == 0) {
+            return BigInteger.ONE;
+        }
+        if (to - from == 1) {
+            return factors.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return multiplyAll(factors, from, middle).multiply(multiplyAll(factors, middle, to));
+    }
+
+    // Произведение чисел from..to деревом, чтобы перемножались числа близкой длины;
+    // product(2, k) - это k!
+    private static BigInteger product(long from, long to) {
+        if (to - from < 16) {
+            BigInteger result = BigInteger.ONE;
+            for (long i = from; i <= to; i++) {
+                result = result.multiply(BigInteger.valueOf(i));
+            }
+            return result;
+        }
+        long middle = (from + to) >>> 1;
+        return product(from, middle).multiply(product(middle + 1, to));
+    }
+
+    /**
+     * Порождённый подграф с локальными индексами 0..k-1 и списками смежности
+     * без кратных рёбер в обе стороны
+     */
+    private static final class Part {
+        private final int[] vertices;
+        private final int[] outStart;
+        private final int[] out;
+        private final int[] inStart;
+        private final int[] in;
+
+        Part(CsrGraph csr, int[] vertices) {
+            this.vertices = vertices;
+            int k = vertices.length;
+            Map<Integer, Integer> local = new HashMap<>(k * 2);
+            for (int i = 0; i < k; i++) {
+                local.put(vertices[i], i);
+            }
+
+            int[] targets = new int[k];
+            int[] seen = new int[k];
+            Arrays.fill(seen, -1);
+            int[] outCount = new int[k + 1];
+            int[] inCount = new int[k + 1];
+            List<int[]> lists = new ArrayList<>(k);
+            for (int i = 0; i < k; i++) {
+                int size = 0;
+                int v = vertices[i];
+                for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                    Integer j = local.get(csr.target(e));
+                    if (j != null && seen[j] != i) {
+                        seen[j] = i;
+                        targets[size++] = j;
+                        inCount[j + 1]++;
+                    }
+                }
+                lists.add(Arrays.copyOf(targets, size));
+                outCount[i + 1] = size;
+            }
+            for (int i = 0; i < k; i++) {
+                outCount[i + 1] += outCount[i];
+                inCount[i + 1] += inCount[i];
+            }
+            outStart = outCount;
+            inStart = inCount;
+            out = new int[outStart[k]];
+            in = new int[inStart[k]];
+            int[] fill = inStart.clone();
+            for (int i = 0; i < k; i++) {
+                int[] list = lists.get(i);
+                System.arraycopy(list, 0, out, outStart[i], list.length);
+                for (int j : list) {
+                    in[fill[j]++] = i;
+                }
+            }
+        }
+
+        // Слабые компоненты связности в глобальных индексах
+        List<int[]> components() {
+            int k = vertices.length;
+            int[] parent = new int[k];
+            for (int i = 0; i < k; i++) {
+                parent[i] = i;
+            }
+            for (int i = 0; i < k; i++) {
+                for (int e = outStart[i]; e < outStart[i + 1]; e++) {
+                    int a = find(parent, i);
+                    int b = find(parent, out[e]);
+                    if (a != b) {
+                        parent[a] = b;
+                    }
+                }
+            }
+            Map<Integer, List<Integer>> groups = new HashMap<>();
+            for (int i = 0; i < k; i++) {
+                groups.computeIfAbsent(find(parent, i), r -> new ArrayList<>()).add(vertices[i]);
+            }
+            List<int[]> components = new ArrayList<>(groups.size());
+            for (List<Integer> group : groups.values()) {
+                components.add(group.stream().mapToInt(Integer::intValue).toArray());
+            }
+            return components;
+        }
+
+        private static int find(int[] parent, int i) {
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+
+        /**
+         * Делит часть на последовательные куски A1 < A2 < ... проходом Кана.
+         * Префикс A порядка отделяется от остатка B, если каждая максимальная вершина A
+         * соединена ребром с каждой минимальной вершиной B: тогда все вершины A
+         * предшествуют всем вершинам B. Число таких пар рёбер поддерживается
+         * при каждом шаге, так что проверка всех префиксов стоит O(V + E).
+         */
+        List<int[]> seriesPieces() {
+            int k = vertices.length;
+            int[] inDegree = new int[k];
+            for (int i = 0; i < k; i++) {
+                inDegree[i] = inStart[i + 1] - inStart[i];
+            }
+            boolean[] maximal = new boolean[k];
+            boolean[] minimal = new boolean[k];
+            // outToMinimal[i] - сколько рёбер из i ведёт в минимальные вершины остатка
+            int[] outToMinimal = new int[k];
+            int[] queue = new int[k];
+            int head = 0;
+            int tail = 0;
+            int maximalCount = 0;
+            int minimalCount = 0;
+            long pairs = 0;
+
+            for (int i = 0; i < k; i++) {
+                if (inDegree[i] == 0) {
+                    queue[tail++] = i;
+                    minimal[i] = true;
+                    minimalCount++;
+                }
+            }
+
+            List<int[]> pieces = new ArrayList<>();
+            int pieceStart = 0;
+            while (head < tail) {
+                int v = queue[head++];
+                minimal[v] = false;
+                minimalCount--;
+                for (int e = inStart[v]; e < inStart[v + 1]; e++) {
+                    int p = in[e];
+                    outToMinimal[p]--;
+                    if (maximal[p]) {
+                        pairs--;
+                    }
+                }
+                for (int e = inStart[v]; e < inStart[v + 1]; e++) {
+                    int p = in[e];
+                    if (maximal[p]) {
+                        maximal[p] = false;
+                        maximalCount--;
+                        pairs -= outToMinimal[p];
+                    }
+                }
+                maximal[v] = true;
+                maximalCount++;
+
+                for (int e = outStart[v]; e < outStart[v + 1]; e++) {
+                    int w = out[e];
+                    if (--inDegree[w] == 0) {
+                        queue[tail++] = w;
+                        minimal[w] = true;
+                        minimalCount++;
+                        for (int f = inStart[w]; f < inStart[w + 1]; f++) {
+                            int p = in[f];
+                            outToMinimal[p]++;
+                            if (maximal[p]) {
+                                pairs++;
+                            }
+                        }
+                    }
+                }
+
+                if (head < k && pairs == (long) maximalCount * minimalCount) {
+                    pieces.add(global(queue, pieceStart, head));
+                    pieceStart = head;
+                }
+            }
+            pieces.add(global(queue, pieceStart, k));
+            return pieces;
+        }
+
+        private int[] global(int[] locals, int from, int to) {
+            int[] result = new int[to - from];
+            for (int i = from; i < to; i++) {
+                result[i - from] = vertices[locals[i]];
+            }
+            return result;
+        }
+
+        // ways[mask] - число способов выписать вершины mask первыми
+        long countBySubsets() {
+            int k = vertices.length;
+            int[] predecessors = new int[k];
+            for (int i = 0; i < k; i++) {
+                for (int e = inStart[i]; e < inStart[i + 1]; e++) {
+                    predecessors[i] |= 1 << in[e];
+                }
+            }
+            long[] ways = new long[1 << k];
+            ways[0] = 1;
+            for (int mask = 0; mask < ways.length; mask++) {
+                long current = ways[mask];
+                if (current == 0) {
+                    continue;
+                }
+                for (int i = 0; i < k; i++) {
+                    if ((mask & (1 << i)) == 0 && (predecessors[i] & ~mask) == 0) {
+                        ways[mask | (1 << i)] += current;
+                    }
+                }
+            }
+            return ways[ways.length - 1];
+        }
+
+        // Та же динамика, но по уровням: хранятся только идеалы текущего размера
+        BigInteger countByIdeals() {
+            int k = vertices.length;
+            Map<BitSet, BigInteger> level = new HashMap<>();
+            level.put(new BitSet(k), BigInteger.ONE);
+            for (int size = 0; size < k; size++) {
+                Map<BitSet, BigInteger> next = new HashMap<>();
+                for (Map.Entry<BitSet, BigInteger> entry : level.entrySet()) {
+                    BitSet ideal = entry.getKey();
+                    for (int i = ideal.nextClearBit(0); i < k; i = ideal.nextClearBit(i + 1)) {
+                        if (isReady(ideal, i)) {
+                            BitSet extended = (BitSet) ideal.clone();
+                            extended.set(i);
+                            next.merge(extended, entry.getValue(), BigInteger::add);
+                        }
+                    }
+                }
+                if (next.size() > MAX_IDEAL_STATES) {
+                    throw new IllegalStateException("Слишком много состояний для точного подсчёта: часть из "
+                        + k + " вершин имеет больше " + MAX_IDEAL_STATES + " идеалов одного размера");
+                }
+                level = next;
+            }
+            return level.values().iterator().next();
+        }
+
+        private boolean isReady(BitSet ideal, int i) {
+            for (int e = inStart[i]; e < inStart[i + 1]; e++) {
+                if (!ideal.get(in[e])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
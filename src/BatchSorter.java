@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Пакетная топологическая сортировка файлов графов без графического интерфейса.
+ *
+ * Каждый файл читается и сортируется в отдельной задаче; число одновременно
+ * обрабатываемых графов ограничено семафором. На JDK 21+ задачи выполняются
+ * в виртуальных потоках, на более старых JDK - в пуле платформенных потоков.
+ * Класс не использует JavaFX, поэтому запускается без загрузки графического стека.
+ *
+ * Результат выгружается через PathExporter (по умолчанию строка "a -> b -> c"):
+ * в stdout (с заголовком "# файл") или в файл &lt;имя&gt;.&lt;расширение формата&gt;
+ * в выходной директории. Бинарный формат пишется только в директорию.
+ * С параметром --reduce перед сортировкой удаляются транзитивно лишние рёбра,
+ * а их количество выводится в stderr. С параметром --metrics в конце
+ * в stderr выводится сводка замеров (см. RecordingMetrics).
+ * Если хотя бы один граф содержит цикл или не читается, код выхода ненулевой,
+ * а описание цикла выводится в stderr.
+ */
+public final class BatchSorter {
+    private final int parallelism;
+    private final Path outputDir;
+    private final PathExporter.Format format;
+    private final PriorityPolicy policy;
+    private final boolean reduce;
+    private final Semaphore permits;
+    private final PrintStream stdout;
+    private final PrintStream stderr;
+
+    /**
+     * @param parallelism максимальное число одновременно обрабатываемых графов
+     * @param outputDir директория для результатов или null для вывода в stdout
+     * @param stdout поток результатов
+     * @param stderr поток сообщений об ошибках
+     */
+    public BatchSorter(int parallelism, Path outputDir, PrintStream stdout, PrintStream stderr) {
+        this(parallelism, outputDir, PathExporter.Format.ARROWS, null, stdout, stderr);
+    }
+
+    /**
+     * @param parallelism максимальное число одновременно обрабатываемых графов
+     * @param outputDir директория для результатов или null для вывода в stdout
+     * @param format формат результата
+     * @param policy правило выбора среди готовых вершин или null для очереди FIFO
+     * @param stdout поток результатов
+     * @param stderr поток сообщений об ошибках
+     */
+    public BatchSorter(int parallelism, Path outputDir, PathExporter.Format format, PriorityPolicy policy,
+                       PrintStream stdout, PrintStream stderr) {
+        this(parallelism, outputDir, format, policy, false, stdout, stderr);
+    }
+
+    /**
+     * @param parallelism максимальное число одновременно обрабатываемых графов
+     * @param outputDir директория для результатов или null для вывода в stdout
+     * @param format формат результата
+     * @param policy правило выбора среди готовых вершин или null для очереди FIFO
+     * @param reduce удалять ли перед сортировкой транзитивно лишние рёбра
+     * @param stdout поток результатов
+     * @param stderr поток сообщений об ошибках
+     */
+    public BatchSorter(int parallelism, Path outputDir, PathExporter.Format format, PriorityPolicy policy,
+                       boolean reduce, PrintStream stdout, PrintStream stderr) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Параллелизм должен быть положительным");
+        }
+        if (outputDir == null && format == PathExporter.Format.BINARY) {
+            throw new IllegalArgumentException("Бинарный формат выгружается только в директорию");
+        }
+        this.parallelism = parallelism;
+        this.outputDir = outputDir;
+        this.format = format;
+        this.policy = policy;
+        this.reduce = reduce;
+        this.permits = new Semaphore(parallelism);
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    /**
+     * Сортирует все графы и выводит результаты
+     *
+     * @param files файлы графов
+     * @return количество графов, которые не удалось отсортировать
+     * @throws InterruptedException если поток прерван во время ожидания задач
+     */
+    public int run(List<Path> files) throws InterruptedException {
+        List<Future<Boolean>> results = new ArrayList<>(files.size());
+        ExecutorService executor = newExecutor();
+        try {
+            for (Path file : files) {
+                results.add(executor.submit(() -> sortWithPermit(file)));
+            }
+            int failed = 0;
+            for (Future<Boolean> result : results) {
+                try {
+                    failed += result.get() ? 0 : 1;
+                } catch (ExecutionException e) {
+                    failed++;
+                }
+            }
+            return failed;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean sortWithPermit(Path file) throws InterruptedException {
+        permits.acquire();
+        try {
+            sortFile(file);
+            return true;
+        } catch (CycleException e) {
+            report(file, e.getMessage());
+        } catch (Exception e) {
+            report(file, "Ошибка обработки: " + e.getMessage());
+        } finally {
+            permits.release();
+        }
+        return false;
+    }
+
+    private void sortFile(Path file) throws Exception {
+        CsrGraph csr = BinaryGraphFormat.isBinaryGraph(file)
+            ? BinaryGraphFormat.read(file)
+            : GraphParser.parseCsrFromFile(file);
+        if (reduce) {
+            TransitiveReduction reduction = new TransitiveReduction(csr);
+            report(file, "удалено лишних рёбер: " + reduction.removedCount() + " из " + csr.edgeCount());
+            csr = reduction.reducedGraph();
+        }
+
+        TopologicalSorter sorter = new TopologicalSorter(csr, policy);
+        int[] order = new int[csr.vertexCount()];
+        int count = 0;
+        while (sorter.hasNext()) {
+            order[count++] = sorter.nextIndex();
+        }
+        sorter.requireComplete();
+
+        if (outputDir != null) {
+            Path target = outputDir.resolve(file.getFileName() + "." + format.extension());
+            PathExporter.export(csr, order, count, format, target);
+            return;
+        }
+        // Результаты разных файлов не должны перемешиваться в stdout
+        synchronized (stdout) {
+            stdout.print("# " + file + "\n");
+            stdout.flush();
+            PathExporter.export(csr, order, count, format, Channels.newChannel(stdout));
+            stdout.print('\n');
+            stdout.flush();
+        }
+    }
+
+    private void report(Path file, String message) {
+        synchronized (stderr) {
+            stderr.println(file + ": " + message);
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() появился в JDK 21, поэтому вызывается через MethodHandle
+    private ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                .invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return Executors.newFixedThreadPool(parallelism);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Не удалось создать пул потоков", e);
+        }
+    }
+
+    /**
+     * Раскрывает директории в список файлов графов (.graph, .graph.gz, .graphb)
+     *
+     * @param arguments файлы и директории
+     * @return файлы графов в порядке аргументов, содержимое директорий отсортировано по имени
+     * @throws IOException при ошибке чтения директории
+     */
+    public static List<Path> collectFiles(List<String> arguments) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String argument : arguments) {
+            Path path = Path.of(argument);
+            if (!Files.isDirectory(path)) {
+                files.add(path);
+                continue;
+            }
+            try (Stream<Path> children = Files.list(path)) {
+                children.filter(Files::isRegularFile)
+                    .filter(BatchSorter::isGraphFile)
+                    .sorted()
+                    .forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isGraphFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".graph") || name.endsWith(".graph.gz") || name.endsWith(BinaryGraphFormat.EXTENSION);
+    }
+
+    /**
+     * Запуск из командной строки.
+     * Пример: BatchSorter --parallelism 8 --format csv --priority name --reduce --out results data/ extra.graph
+     *
+     * @param args параметры и список файлов/директорий
+     */
+    public static void main(String[] args) throws Exception {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        Path outputDir = null;
+        PathExporter.Format format = PathExporter.Format.ARROWS;
+        PriorityPolicy policy = null;
+        boolean reduce = false;
+        boolean metrics = false;
+        List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--parallelism" -> parallelism = Integer.parseInt(args[++i]);
+                case "--out" -> outputDir = Path.of(args[++i]);
+                case "--format" -> format = PathExporter.Format.parse(args[++i]);
+                case "--priority" -> policy = PriorityPolicy.parse(args[++i]);
+                case "--reduce" -> reduce = true;
+                case "--metrics" -> metrics = true;
+                default -> inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty() || (outputDir == null && format == PathExporter.Format.BINARY)) {
+            System.err.println("Usage: BatchSorter [--parallelism N] [--format arrows|names|csv|json|binary] "
+                + "[--priority fifo|index|name] [--reduce] [--metrics] [--out DIR] <file|dir>...");
+            if (!inputs.isEmpty()) {
+                System.err.println("The binary format requires --out");
+            }
+            System.exit(2);
+        }
+        if (outputDir != null) {
+            Files.createDirectories(outputDir);
+        }
+
+        if (metrics && !Metrics.get().isEnabled()) {
+            Metrics.set(new RecordingMetrics());
+        }
+
+        List<Path> files = collectFiles(inputs);
+        int failed = new BatchSorter(parallelism, outputDir, format, policy, reduce, System.out, System.err).run(files);
+        System.out.flush();
+        if (Metrics.get() instanceof RecordingMetrics recording) {
+            recording.dump(System.err);
+        }
+        if (failed > 0) {
+            System.err.println("Not sorted: " + failed + " of " + files.size());
+            System.exit(1);
+        }
+    }
+}
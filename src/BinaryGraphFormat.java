@@ -0,0 +1,381 @@
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Бинарный формат графа (.graphb), рассчитанный на загрузку через
+ * отображение файла в память без разбора и копирования.
+ *
+ * Все числа - int в порядке little-endian. Раскладка файла:
+ * <pre>
+ * заголовок (32 байта): magic "TSGB", версия, n, m, длина таблицы имён, флаги весов, 2 резервных int
+ * offsets      int[n + 1]  смещения списков смежности (CSR)
+ * targets      int[m]      концы рёбер
+ * xs           int[n]      координаты X
+ * ys           int[n]      координаты Y
+ * nameOffsets  int[n + 1]  смещения имён в таблице строк
+ * nameBytes    byte[]      имена в UTF-8
+ * </pre>
+ * Начиная с версии 2 за таблицей имён могут идти веса (double, little-endian),
+ * выровненные по 8 байт от начала файла: vertexWeights double[n], если установлен
+ * флаг VERTEX_WEIGHTS, и edgeWeights double[m] в порядке targets, если установлен
+ * флаг EDGE_WEIGHTS. Граф без весов по-прежнему пишется версией 1.
+ */
+public final class BinaryGraphFormat {
+    public static final String EXTENSION = ".graphb";
+
+    private static final int MAGIC = 0x42475354; // "TSGB" в little-endian
+    private static final int VERSION = 1;
+    private static final int WEIGHTED_VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final int VERTEX_WEIGHTS = 1;
+    private static final int EDGE_WEIGHTS = 2;
+
+    // Приватный конструктор - утилитарный класс
+    private BinaryGraphFormat() {}
+
+    /**
+     * Проверяет, имеет ли файл расширение бинарного формата
+     *
+     * @param path путь к файлу
+     * @return true, если это файл .graphb
+     */
+    public static boolean isBinaryGraph(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Открывает бинарный граф, отображая файл в память.
+     * Массивы рёбер, координат и имён остаются вне кучи и читаются напрямую из файла.
+     *
+     * @param path путь к файлу .graphb
+     * @return CSR-граф поверх отображённого файла
+     * @throws IOException при ошибке чтения
+     * @throws IllegalArgumentException если файл повреждён или имеет другую версию
+     */
+    public static CsrGraph read(Path path) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Бинарный граф больше 2 ГБ не поддерживается: " + path);
+            }
+            if (size < HEADER_BYTES) {
+                throw new IllegalArgumentException("Файл слишком мал для бинарного графа: " + path);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Файл не является бинарным графом: " + path);
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION && version != WEIGHTED_VERSION) {
+                throw new IllegalArgumentException("Неподдерживаемая версия бинарного графа: " + version);
+            }
+            int n = buffer.getInt(8);
+            int m = buffer.getInt(12);
+            int nameBytesLength = buffer.getInt(16);
+            int flags = version == VERSION ? 0 : buffer.getInt(20);
+            if (n < 0 || m < 0 || nameBytesLength < 0
+                || size != expectedSize(n, m, nameBytesLength, flags)) {
+                throw new IllegalArgumentException("Повреждённый заголовок бинарного графа: " + path);
+            }
+
+            int position = HEADER_BYTES;
+            IntBuffer offsets = intSection(buffer, position, n + 1);
+            position += (n + 1) * Integer.BYTES;
+            IntBuffer targets = intSection(buffer, position, m);
+            position += m * Integer.BYTES;
+            IntBuffer xs = intSection(buffer, position, n);
+            position += n * Integer.BYTES;
+            IntBuffer ys = intSection(buffer, position, n);
+            position += n * Integer.BYTES;
+            IntBuffer nameOffsets = intSection(buffer, position, n + 1);
+            position += (n + 1) * Integer.BYTES;
+            ByteBuffer nameBytes = buffer.slice(position, nameBytesLength);
+            position = (int) weightsStart(n, m, nameBytesLength);
+            DoubleBuffer vertexWeights = null;
+            if ((flags & VERTEX_WEIGHTS) != 0) {
+                vertexWeights = doubleSection(buffer, position, n);
+                position += n * Double.BYTES;
+            }
+            DoubleBuffer edgeWeights = null;
+            if ((flags & EDGE_WEIGHTS) != 0) {
+                edgeWeights = doubleSection(buffer, position, m);
+            }
+
+            // Проверка за O(n + m): иначе повреждённое смещение или конец ребра
+            // проявится выходом за границы массива уже при сортировке
+            if (!isOffsetTable(offsets, n, m) || !isOffsetTable(nameOffsets, n, nameBytesLength)
+                || !targetsInRange(targets, m, n)) {
+                throw new IllegalArgumentException("Повреждённые смещения бинарного графа: " + path);
+            }
+            CsrGraph csr = new CsrGraph(nameOffsets, nameBytes, xs, ys, offsets, targets, vertexWeights, edgeWeights);
+            Metrics.get().graphMapped(size, System.nanoTime() - start, n, m);
+            return csr;
+        }
+    }
+
+    /**
+     * Записывает граф в бинарном формате
+     *
+     * @param graph граф
+     * @param path путь к файлу .graphb
+     * @throws IOException при ошибке записи
+     */
+    public static void write(IConstGraph graph, Path path) throws IOException {
+        CsrGraph csr = CsrGraph.fromGraph(graph);
+        int n = csr.vertexCount();
+        int m = csr.edgeCount();
+
+        byte[][] names = new byte[n][];
+        int nameBytesLength = 0;
+        for (int v = 0; v < n; v++) {
+            names[v] = csr.name(v).getBytes(StandardCharsets.UTF_8);
+            nameBytesLength += names[v].length;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelWriter out = new ChannelWriter(channel);
+
+            int flags = (csr.hasVertexWeights() ? VERTEX_WEIGHTS : 0) | (csr.hasEdgeWeights() ? EDGE_WEIGHTS : 0);
+            out.putInt(MAGIC);
+            out.putInt(flags == 0 ? VERSION : WEIGHTED_VERSION);
+            out.putInt(n);
+            out.putInt(m);
+            out.putInt(nameBytesLength);
+            out.putInt(flags);
+            for (int i = 6; i < HEADER_BYTES / Integer.BYTES; i++) {
+                out.putInt(0);
+            }
+
+            for (int v = 0; v < n; v++) {
+                out.putInt(csr.firstEdge(v));
+            }
+            out.putInt(m);
+            for (int e = 0; e < m; e++) {
+                out.putInt(csr.target(e));
+            }
+            for (int v = 0; v < n; v++) {
+                out.putInt(csr.x(v));
+            }
+            for (int v = 0; v < n; v++) {
+                out.putInt(csr.y(v));
+            }
+            int nameOffset = 0;
+            for (int v = 0; v < n; v++) {
+                out.putInt(nameOffset);
+                nameOffset += names[v].length;
+            }
+            out.putInt(nameOffset);
+            for (int v = 0; v < n; v++) {
+                out.putBytes(names[v]);
+            }
+            if (flags != 0) {
+                long padding = weightsStart(n, m, nameBytesLength) - expectedSize(n, m, nameBytesLength, 0);
+                out.putBytes(new byte[(int) padding]);
+            }
+            if (csr.hasVertexWeights()) {
+                for (int v = 0; v < n; v++) {
+                    out.putDouble(csr.vertexWeight(v));
+                }
+            }
+            if (csr.hasEdgeWeights()) {
+                for (int e = 0; e < m; e++) {
+                    out.putDouble(csr.edgeWeight(e));
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Конвертирует JSON-файл .graph в бинарный формат
+     *
+     * @param jsonPath исходный файл .graph
+     * @param binaryPath целевой файл .graphb
+     * @throws Exception при ошибках чтения/парсинга/записи
+     */
+    public static void convertJsonToBinary(Path jsonPath, Path binaryPath) throws Exception {
+        write(GraphParser.parseCsrFromFile(jsonPath), binaryPath);
+    }
+
+    /**
+     * Конвертирует бинарный граф обратно в JSON-формат .graph
+     *
+     * @param binaryPath исходный файл .graphb
+     * @param jsonPath целевой файл .graph
+     * @throws IOException при ошибках чтения/записи
+     */
+    public static void convertBinaryToJson(Path binaryPath, Path jsonPath) throws IOException {
+        CsrGraph csr = read(binaryPath);
+        try (Writer writer = Files.newBufferedWriter(jsonPath, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(writer)) {
+            json.setIndent("    ");
+            json.beginObject();
+
+            json.name("vertices").beginArray();
+            for (int v = 0; v < csr.vertexCount(); v++) {
+                json.beginObject();
+                json.name("x").value(csr.x(v));
+                json.name("y").value(csr.y(v));
+                json.name("name").value(csr.name(v));
+                if (csr.hasVertexWeights()) {
+                    json.name("weight").value(csr.vertexWeight(v));
+                }
+                json.endObject();
+            }
+            json.endArray();
+
+            json.name("edges").beginArray();
+            for (int v = 0; v < csr.vertexCount(); v++) {
+                for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                    json.beginObject();
+                    json.name("vertex1").value(v);
+                    json.name("vertex2").value(csr.target(e));
+                    json.name("isDirected").value(true);
+                    if (csr.hasEdgeWeights()) {
+                        json.name("weight").value(csr.edgeWeight(e));
+                    }
+                    json.endObject();
+                }
+            }
+            json.endArray();
+
+            json.endObject();
+        }
+    }
+
+    /**
+     * Конвертер из командной строки: направление выбирается по расширению входного файла.
+     *
+     * @param args входной и выходной файлы
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryGraphFormat <input.graph|input.graphb> <output>");
+            System.exit(2);
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        if (isBinaryGraph(input)) {
+            convertBinaryToJson(input, output);
+        } else {
+            convertJsonToBinary(input, output);
+        }
+    }
+
+    private static long expectedSize(int n, int m, int nameBytesLength, int flags) {
+        long size = HEADER_BYTES + (2L * (n + 1) + m + 2L * n) * Integer.BYTES + nameBytesLength;
+        if (flags == 0) {
+            return size;
+        }
+        size = weightsStart(n, m, nameBytesLength);
+        if ((flags & VERTEX_WEIGHTS) != 0) {
+            size += (long) n * Double.BYTES;
+        }
+        if ((flags & EDGE_WEIGHTS) != 0) {
+            size += (long) m * Double.BYTES;
+        }
+        return size;
+    }
+
+    // Веса начинаются с первой границы 8 байт после таблицы имён
+    private static long weightsStart(int n, int m, int nameBytesLength) {
+        long end = expectedSize(n, m, nameBytesLength, 0);
+        return (end + Double.BYTES - 1) & -Double.BYTES;
+    }
+
+    // Смещения начинаются с 0, не убывают и заканчиваются длиной таблицы
+    private static boolean isOffsetTable(IntBuffer offsets, int n, int length) {
+        int previous = 0;
+        for (int v = 0; v <= n; v++) {
+            int offset = offsets.get(v);
+            if (offset < previous || (v == 0 && offset != 0)) {
+                return false;
+            }
+            previous = offset;
+        }
+        return previous == length;
+    }
+
+    private static boolean targetsInRange(IntBuffer targets, int m, int n) {
+        for (int e = 0; e < m; e++) {
+            int target = targets.get(e);
+            if (target < 0 || target >= n) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IntBuffer intSection(ByteBuffer buffer, int position, int length) {
+        return buffer.slice(position, length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static DoubleBuffer doubleSection(ByteBuffer buffer, int position, int length) {
+        return buffer.slice(position, length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    // Буферизованная запись little-endian чисел в канал порциями по 64 КБ
+    static final class ChannelWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        ChannelWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) {
+                drain();
+            }
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            if (buffer.remaining() < Double.BYTES) {
+                drain();
+            }
+            buffer.putDouble(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
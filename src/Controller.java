@@ -1,22 +1,27 @@
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.Slider;
 import javafx.scene.control.SplitPane;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.Polygon;
-import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class Controller {
@@ -33,197 +38,195 @@ public class Controller {
     @FXML private Button OnLoadFromFile;
     @FXML private Button RunImmediately;
     @FXML private Button SavePathButton;
+    @FXML private Button CancelButton;
+    @FXML private Button CriticalPathButton;
+    @FXML private CheckBox ReduceEdgesCheckBox;
     
-    @FXML private Label pathLabel;
+    @FXML private ListView<Integer> pathList;
+    @FXML private Slider stepSlider;
+    @FXML private TextField searchField;
+    @FXML private ProgressBar progressBar;
+    @FXML private Label statusLabel;
+
+    // Сколько вершин передаётся в интерфейс одной порцией
+    private static final int UI_CHUNK = 4096;
 
-    private Graph graph;
     private TopologicalSorter sorter;
-    private final Map<Vertex, Circle> vertexNodes = new HashMap<>();
-    private double scale = 1.0;
-    private double offsetX = 0;
-    private double offsetY = 0;
+    private GraphRenderer renderer;
+    private final PathListModel pathModel = new PathListModel();
+    private final UiUpdateQueue uiQueue = new UiUpdateQueue();
+    private Task<?> currentTask;
+    // Ползунок двигается программно, без перехода сортировщика
+    private boolean syncingSlider;
+
+    // Результат фоновой загрузки: граф и всё, что для него посчитано заранее
+    private record LoadedGraph(CsrGraph graph, TopologicalSorter sorter, SpatialIndex index, String reduction) {}
+
+    @FXML
+    void initialize() {
+        renderer = new GraphRenderer(graphCanvas);
+        pathList.setItems(pathModel);
+        pathList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Integer v, boolean empty) {
+                super.updateItem(v, empty);
+                setText(empty || v == null ? null
+                        : (getIndex() + 1) + ". " + sorter.getCsrGraph().name(v));
+            }
+        });
+        stepSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!syncingSlider) {
+                seekTo((int) Math.round(newValue.doubleValue()));
+            }
+        });
+    }
 
     @FXML
     void onLoadFromFileClick(ActionEvent event) {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open Graph JSON");
         fileChooser.getExtensionFilters().addAll(
-            new FileChooser.ExtensionFilter("Graph Files (*.json, *.graph)", "*.json", "*.graph"),
+            new FileChooser.ExtensionFilter("Graph Files (*.json, *.graph, *.graphb)", "*.json", "*.graph", "*.graphb"),
             new FileChooser.ExtensionFilter("JSON Files", "*.json"),
             new FileChooser.ExtensionFilter("Graph Files", "*.graph"),
+            new FileChooser.ExtensionFilter("Binary Graph Files", "*.graphb"),
             new FileChooser.ExtensionFilter("All Files", "*.*")
         );
         File file = fileChooser.showOpenDialog(null);
 
         if (file != null) {
-            try {
-                Path path = file.toPath();
-                graph = GraphParser.parseFromFile(path);
-                sorter = new TopologicalSorter(graph);
-                calculateScaling();
-                drawGraph();
-                updatePathLabel();
-            } catch (Exception e) {
-                showAlert(AlertType.ERROR, "Error", "Load failed", e.getMessage());
-            }
+            loadInBackground(file.toPath());
         }
     }
 
+    // Чтение, индексация и подготовка отрисовки выполняются вне FX-потока
+    private void loadInBackground(Path path) {
+        boolean reduce = ReduceEdgesCheckBox.isSelected();
+        Task<LoadedGraph> task = new Task<>() {
+            @Override
+            protected LoadedGraph call() throws Exception {
+                long size = Math.max(1, Files.size(path));
+                updateMessage("Reading " + path.getFileName());
+                CsrGraph csr;
+                if (BinaryGraphFormat.isBinaryGraph(path)) {
+                    csr = BinaryGraphFormat.read(path);
+                } else {
+                    csr = GraphParser.parseCsrFromFile(path, bytes -> {
+                        updateProgress(bytes, size);
+                        updateMessage("Parsed " + (bytes >> 20) + " of " + (size >> 20) + " MB");
+                    });
+                }
+
+                updateProgress(-1, 1);
+                String reduction = "";
+                if (reduce && !TransitiveReduction.preservesPathLengths(csr)) {
+                    reduction = ", not reduced: weights would change the critical path";
+                } else if (reduce) {
+                    updateMessage("Reducing " + csr.edgeCount() + " edges");
+                    try {
+                        TransitiveReduction reduced = new TransitiveReduction(csr);
+                        reduction = ", removed " + reduced.removedCount() + " of " + csr.edgeCount() + " edges";
+                        csr = reduced.reducedGraph();
+                    } catch (CycleException ex) {
+                        // Цикл всё равно будет показан при сортировке
+                        reduction = ", not reduced: graph has a cycle";
+                    }
+                }
+                updateMessage("Indexing " + csr.vertexCount() + " vertices, " + csr.edgeCount() + " edges");
+                TopologicalSorter loadedSorter = new TopologicalSorter(csr);
+                SpatialIndex index = new SpatialIndex(csr);
+                return new LoadedGraph(csr, loadedSorter, index, reduction);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            LoadedGraph loaded = task.getValue();
+            sorter = loaded.sorter();
+            renderer.setGraph(loaded.graph(), loaded.index());
+            pathModel.reset(loaded.graph().vertexCount());
+            syncSlider();
+            finishTask("Loaded " + path.getFileName() + loaded.reduction());
+        });
+        task.setOnFailed(e -> {
+            finishTask("Load failed");
+            showAlert(AlertType.ERROR, "Error", "Load failed", task.getException().getMessage());
+        });
+        task.setOnCancelled(e -> finishTask("Load cancelled"));
+        startTask(task);
+    }
+
     // Метод для сохранения пути в файл
     @FXML
     void onSavePathClick(ActionEvent event) {
-        if (sorter == null || sorter.getSortedSoFar().isEmpty()) {
+        if (sorter == null || sorter.sortedCount() == 0) {
             showAlert(AlertType.WARNING, "Warning", "No path", "Nothing to save - sort the graph first");
             return;
         }
         
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Path to File");
-        fileChooser.getExtensionFilters().add(
-            new FileChooser.ExtensionFilter("Text Files", "*.txt")
-        );
+        Map<FileChooser.ExtensionFilter, PathExporter.Format> formats = new LinkedHashMap<>();
+        for (PathExporter.Format format : PathExporter.Format.values()) {
+            formats.put(new FileChooser.ExtensionFilter(
+                format.description() + " (*." + format.extension() + ")", "*." + format.extension()), format);
+        }
+        fileChooser.getExtensionFilters().addAll(formats.keySet());
         File file = fileChooser.showSaveDialog(null);
-
-        if (file != null) {
-            try {
-                // Формируем содержимое файла в формате "1 -> 2 -> 3"
-                StringBuilder content = new StringBuilder();
-                for (int i = 0; i < sorter.getSortedSoFar().size(); i++) {
-                    Vertex v = sorter.getSortedSoFar().get(i);
-                    content.append(v.getName());
-                    if (i < sorter.getSortedSoFar().size() - 1) {
-                        content.append(" -> ");
-                    }
-                }
-                
-                // Записываем в файл
-                Path path = file.toPath();
-                Files.write(path, content.toString().getBytes());
-                
-                showAlert(AlertType.INFORMATION, "Success", "Path saved", 
-                         "Path was successfully saved to: " + path);
-            } catch (Exception e) {
-                showAlert(AlertType.ERROR, "Error", "Save failed", e.getMessage());
-            }
+        if (file == null) {
+            return;
         }
-    }
 
-    private void calculateScaling() {
-        if (graph == null || graph.getVertices().isEmpty()) return;
-        
-        double minX = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE;
-        double minY = Double.MAX_VALUE;
-        double maxY = Double.MIN_VALUE;
-        
-        for (Vertex v : graph.getVertices()) {
-            minX = Math.min(minX, v.getX());
-            maxX = Math.max(maxX, v.getX());
-            minY = Math.min(minY, v.getY());
-            maxY = Math.max(maxY, v.getY());
-        }
-        
-        double graphWidth = maxX - minX;
-        double graphHeight = maxY - minY;
-        
-        // Получаем реальные размеры с учетом ScrollPane
-        double canvasWidth = graphCanvas.getWidth();
-        double canvasHeight = graphCanvas.getHeight();
-        
-        // Добавляем 20% отступ для раннего появления скролла
-        double paddingFactor = 0.2;
-        double scaleX = (canvasWidth > 0 && graphWidth > 0) 
-                ? (canvasWidth * (1 - paddingFactor)) / graphWidth : 1;
-        double scaleY = (canvasHeight > 0 && graphHeight > 0) 
-                ? (canvasHeight * (1 - paddingFactor)) / graphHeight : 1;
-        
-        scale = Math.min(scaleX, scaleY) * 0.95; // Добавляем небольшой отступ
-        
-        // Центрирование графа
-        offsetX = (canvasWidth - graphWidth * scale) / 2 - minX * scale;
-        offsetY = (canvasHeight - graphHeight * scale) / 2 - minY * scale;
+        PathExporter.Format format = formats.getOrDefault(fileChooser.getSelectedExtensionFilter(),
+                                                          PathExporter.Format.ARROWS);
+        saveInBackground(file.toPath(), format);
     }
 
-    private double transformX(double x) {
-        return offsetX + x * scale;
+    private void saveInBackground(Path path, PathExporter.Format format) {
+        // Кнопки заблокированы до конца выгрузки, поэтому сортировщик не меняется
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                updateProgress(-1, 1);
+                updateMessage("Saving " + sorter.sortedCount() + " vertices to " + path.getFileName());
+                Exception error = null;
+                try {
+                    PathExporter.export(sorter, format, path);
+                } catch (IOException | RuntimeException e) {
+                    error = e;
+                }
+                postSaveFinish(this, path, error);
+                return null;
+            }
+        };
+        startTask(task);
     }
 
-    private double transformY(double y) {
-        return offsetY + y * scale;
+    // Итог выгрузки ставит в очередь сам фоновый поток, когда файл уже закрыт, как и postFinish:
+    // иначе после отмены кнопки разблокируются, пока выгрузка ещё читает сортировщик и пишет файл
+    private void postSaveFinish(Task<?> task, Path path, Exception error) {
+        uiQueue.post(() -> {
+            if (task.isCancelled()) {
+                deletePartialFile(path);
+                finishTask("Save cancelled");
+            } else if (error != null) {
+                deletePartialFile(path);
+                finishTask("Save failed");
+                Platform.runLater(() -> showAlert(AlertType.ERROR, "Error", "Save failed", error.getMessage()));
+            } else {
+                finishTask("Saved " + path.getFileName());
+                Platform.runLater(() -> showAlert(AlertType.INFORMATION, "Success", "Path saved",
+                        "Path was successfully saved to: " + path));
+            }
+        });
     }
 
-    private void drawGraph() {
-        graphCanvas.getChildren().clear();
-        vertexNodes.clear();
-        
-        // Рисуем рёбра со стрелками
-        for (Vertex vertex : graph.getVertices()) {
-            double x1 = transformX(vertex.getX());
-            double y1 = transformY(vertex.getY());
-            
-            for (Vertex neighbor : vertex.getNeighbors()) {
-                double x2 = transformX(neighbor.getX());
-                double y2 = transformY(neighbor.getY());
-                
-                // Рассчитываем вектор направления
-                double dx = x2 - x1;
-                double dy = y2 - y1;
-                double length = Math.sqrt(dx * dx + dy * dy);
-                
-                if (length < 1e-6) continue;
-                
-                // Нормализуем вектор
-                dx /= length;
-                dy /= length;
-                
-                // Отступаем от конечной точки
-                double endX = x2 - 20 * dx;
-                double endY = y2 - 20 * dy;
-                
-                // Отрисовка линию
-                Line edgeLine = new Line(x1, y1, endX, endY);
-                edgeLine.setStrokeWidth(2);
-                graphCanvas.getChildren().add(edgeLine);
-                
-                // Отрисовка стрелку
-                drawArrow(endX, endY, dx, dy);
-            }
-        }
-        
-        // Рисуем вершины
-        for (Vertex vertex : graph.getVertices()) {
-            double x = transformX(vertex.getX());
-            double y = transformY(vertex.getY());
-            
-            Circle node = new Circle(x, y, 20);
-            node.setStyle("-fx-fill: lightgray; -fx-stroke: black; -fx-stroke-width: 2;");
-            
-            Text label = new Text(x - 5, y + 5, vertex.getName());
-            label.setStyle("-fx-font-weight: bold;");
-
-            graphCanvas.getChildren().addAll(node, label);
-            vertexNodes.put(vertex, node);
+    private static void deletePartialFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Недописанный файл останется, но об ошибке выгрузки пользователь уже знает
         }
     }
 
-    // Метод для рисования стрелки
-    private void drawArrow(double endX, double endY, double dx, double dy) {
-        double arrowLength = 12;
-        double arrowAngle = Math.toRadians(30);
-        
-        double x1 = endX - arrowLength * (dx * Math.cos(arrowAngle) + dy * Math.sin(arrowAngle));
-        double y1 = endY - arrowLength * (dy * Math.cos(arrowAngle) - dx * Math.sin(arrowAngle));
-        
-        double x2 = endX - arrowLength * (dx * Math.cos(-arrowAngle) + dy * Math.sin(-arrowAngle));
-        double y2 = endY - arrowLength * (dy * Math.cos(-arrowAngle) - dx * Math.sin(-arrowAngle));
-        
-        Polygon arrowHead = new Polygon();
-        arrowHead.getPoints().addAll(endX, endY, x1, y1, x2, y2);
-        arrowHead.setStyle("-fx-fill: black;");
-        
-        graphCanvas.getChildren().add(arrowHead);
-    }
-    
     @FXML
     void onForwardButtonClick(ActionEvent event) {
         if (sorter == null) {
@@ -232,11 +235,15 @@ public class Controller {
         }
         
         if (sorter.hasNext()) {
-            Vertex current = sorter.next();
-            highlightVertex(current, "green");
-            updatePathLabel();
-        } else {
+            int v = sorter.nextIndex();
+            renderer.setState(v, GraphRenderer.SORTED);
+            pathModel.append(v);
+            pathList.scrollTo(pathModel.size() - 1);
+            syncSlider();
+        } else if (sorter.isComplete()) {
             showAlert(AlertType.INFORMATION, "Complete", "Sorting finished", "All vertices processed");
+        } else {
+            showCycleAlert();
         }
     }
 
@@ -248,12 +255,48 @@ public class Controller {
         }
         
         if (!sorter.getSortedSoFar().isEmpty()) {
-            Vertex current = sorter.prev();
-            highlightVertex(current, "lightgray");
-            updatePathLabel();
+            renderer.setState(sorter.prevIndex(), GraphRenderer.DEFAULT);
+            pathModel.popVertex();
+            syncSlider();
+        }
+    }
+
+    // Переход ползунком: перерисовываются только вершины между старой и новой позицией.
+    // До самого дальнего выполненного шага переход дешёвый и идёт в FX-потоке,
+    // дальше шаги выполняет фоновая задача, как при Run Immediately
+    private void seekTo(int step) {
+        if (sorter == null || currentTask != null) {
+            return;
+        }
+        int from = sorter.sortedCount();
+        int to = sorter.seek(Math.min(step, sorter.frontier()));
+        pathModel.batch(() -> {
+            for (int i = from; i < to; i++) {
+                int v = sorter.sortedIndexAt(i);
+                renderer.setState(v, GraphRenderer.SORTED);
+                pathModel.append(v);
+            }
+            for (int i = from; i > to; i--) {
+                renderer.setState(pathModel.popVertex(), GraphRenderer.DEFAULT);
+            }
+        });
+        if (to > 0) {
+            pathList.scrollTo(to - 1);
+        }
+        syncSlider();
+        statusLabel.setText(sortStatus());
+        if (step > to && sorter.hasNext()) {
+            runSortTo(step);
         }
     }
 
+    private void syncSlider() {
+        syncingSlider = true;
+        stepSlider.setMax(sorter.getCsrGraph().vertexCount());
+        stepSlider.setValue(sorter.sortedCount());
+        syncingSlider = false;
+    }
+
     @FXML
     void onRunImmediatelyClick(ActionEvent event) {
         if (sorter == null) {
@@ -261,33 +304,219 @@ public class Controller {
             return;
         }
         
-        while (sorter.hasNext()) {
-            Vertex current = sorter.next();
-            highlightVertex(current, "green");
+        runSortTo(sorter.getCsrGraph().vertexCount());
+    }
+
+    // Сортирует в фоновом потоке, пока не будет отсортировано target вершин
+    private void runSortTo(int target) {
+        int n = sorter.getCsrGraph().vertexCount();
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                updateMessage("Sorting " + n + " vertices");
+                int done = sorter.sortedCount();
+                int[] chunk = new int[UI_CHUNK];
+                int length = 0;
+                // Сортировщик меняется только здесь: кнопки шагов и ползунок заблокированы до конца задачи
+                while (done + length < target && sorter.hasNext() && !isCancelled()) {
+                    chunk[length++] = sorter.nextIndex();
+                    if (length == UI_CHUNK) {
+                        postSorted(chunk, length);
+                        chunk = new int[UI_CHUNK];
+                        length = 0;
+                        done += UI_CHUNK;
+                        updateProgress(done, target);
+                        updateMessage("Sorted " + done + " of " + n + " vertices");
+                    }
+                }
+                postSorted(chunk, length);
+                if (!isCancelled() && !sorter.hasNext() && !sorter.isComplete()) {
+                    postCycleReport();
+                }
+                postFinish(this, "Sort cancelled: ");
+                return null;
+            }
+        };
+        task.setOnFailed(e -> uiQueue.post(() -> {
+            finishTask("Sort failed");
+            Platform.runLater(() -> showAlert(AlertType.ERROR, "Error", "Sort failed", task.getException().getMessage()));
+        }));
+        startTask(task);
+    }
+
+    // Завершение ставит в очередь сам фоновый поток после последней порции, а не обработчик
+    // отмены: cancel() срабатывает в FX-потоке сразу, пока поток ещё может менять сортировщик.
+    // Вызывается последним действием задачи, после него сортировщик не трогается.
+    private void postFinish(Task<?> task, String cancelledPrefix) {
+        uiQueue.post(() -> finishTask(task.isCancelled() ? cancelledPrefix + sortStatus() : sortStatus()));
+    }
+
+    // Передаёт порцию отсортированных вершин в интерфейс
+    private void postSorted(int[] chunk, int length) {
+        if (length == 0) {
+            return;
         }
-        updatePathLabel();
+        uiQueue.post(() -> {
+            pathModel.batch(() -> {
+                for (int i = 0; i < length; i++) {
+                    renderer.setState(chunk[i], GraphRenderer.SORTED);
+                    pathModel.append(chunk[i]);
+                }
+            });
+            pathList.scrollTo(pathModel.size() - 1);
+            syncSlider();
+        });
     }
 
-    private void highlightVertex(Vertex vertex, String color) {
-        Circle node = vertexNodes.get(vertex);
-        if (node != null) {
-            node.setStyle("-fx-fill: " + color + "; -fx-stroke: black; -fx-stroke-width: 2;");
+    // Поиск цикла и заблокированных вершин в фоновом потоке; вызывается из задачи
+    private void postCycleReport() {
+        int[] blocked = sorter.getBlockedIndices();
+        String cycle = CycleException.describe(sorter.findCycle());
+        for (int from = 0; from < blocked.length; from += UI_CHUNK) {
+            int start = from;
+            int end = Math.min(blocked.length, from + UI_CHUNK);
+            uiQueue.post(() -> {
+                for (int i = start; i < end; i++) {
+                    renderer.setState(blocked[i], GraphRenderer.BLOCKED);
+                }
+            });
         }
+        // Очередь выполняется в кадре анимации, где showAndWait запрещён, поэтому окно открывается после кадра
+        uiQueue.post(() -> Platform.runLater(() -> showAlert(AlertType.WARNING, "Cycle detected", "Graph is not acyclic",
+                blocked.length + " vertices are blocked by a cycle.\n" + "Cycle: " + cycle)));
+    }
+
+    // Сообщение о вершинах, которые сортировка не может обработать из-за цикла
+    private void showCycleAlert() {
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                updateMessage("Searching for a cycle");
+                postCycleReport();
+                postFinish(this, "Cycle search cancelled: ");
+                return null;
+            }
+        };
+        task.setOnFailed(e -> finishTask("Cycle search failed"));
+        startTask(task);
     }
 
-    // Обновление отображения пути
-    private void updatePathLabel() {
-        if (sorter == null || sorter.getSortedSoFar().isEmpty()) {
-            pathLabel.setText("Topological Path: ");
+    // Выделение критического пути на холсте; повторное нажатие снимает выделение
+    @FXML
+    void onCriticalPathClick(ActionEvent event) {
+        if (sorter == null) {
+            showAlert(AlertType.WARNING, "Warning", "No graph", "Load a graph first");
             return;
         }
-        
-        StringBuilder path = new StringBuilder("Topological Path: ");
-        for (Vertex v : sorter.getSortedSoFar()) {
-            path.append(v.getName()).append(" -> ");
+        if (renderer.hasHighlightedPath()) {
+            renderer.setHighlightedPath(null);
+            statusLabel.setText(sortStatus());
+            return;
+        }
+
+        CsrGraph csr = sorter.getCsrGraph();
+        Task<CriticalPathAnalyzer> task = new Task<>() {
+            @Override
+            protected CriticalPathAnalyzer call() {
+                updateProgress(-1, 1);
+                updateMessage("Computing critical path");
+                return new CriticalPathAnalyzer(csr);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            CriticalPathAnalyzer analysis = task.getValue();
+            int[] path = analysis.path();
+            renderer.setHighlightedPath(path);
+            finishTask(String.format("Critical path: %d vertices, length %.6g", path.length, analysis.length()));
+        });
+        task.setOnFailed(e -> {
+            finishTask("Critical path failed");
+            showAlert(AlertType.ERROR, "Error", "No critical path", task.getException().getMessage());
+        });
+        task.setOnCancelled(e -> finishTask("Critical path cancelled"));
+        startTask(task);
+    }
+
+    // Первое нажатие включает замеры, следующие показывают их сводку
+    @FXML
+    void onMetricsClick(ActionEvent event) {
+        if (!(Metrics.get() instanceof RecordingMetrics recording)) {
+            Metrics.set(new RecordingMetrics());
+            statusLabel.setText("Metrics recording started");
+            return;
+        }
+        String summary = recording.summary();
+        if (sorter != null) {
+            summary += "current sorter: " + sorter.stats();
+        }
+        showAlert(AlertType.INFORMATION, "Metrics", "Parse, sort and render metrics", summary);
+    }
+
+    private String sortStatus() {
+        return "Sorted " + pathModel.size() + " of " + sorter.getCsrGraph().vertexCount() + " vertices";
+    }
+
+    @FXML
+    void onCancelClick(ActionEvent event) {
+        if (currentTask != null) {
+            currentTask.cancel();
+        }
+    }
+
+    // Запускает фоновую задачу; на время её работы кнопки, меняющие состояние, заблокированы
+    private void startTask(Task<?> task) {
+        currentTask = task;
+        setBusy(true);
+        progressBar.progressProperty().bind(task.progressProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        Thread thread = new Thread(task, "graph-task");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void finishTask(String status) {
+        progressBar.progressProperty().unbind();
+        statusLabel.textProperty().unbind();
+        progressBar.setProgress(0);
+        statusLabel.setText(status);
+        currentTask = null;
+        setBusy(false);
+    }
+
+    private void setBusy(boolean busy) {
+        OnLoadFromFile.setDisable(busy);
+        BackButton.setDisable(busy);
+        ForwardButton.setDisable(busy);
+        RunImmediately.setDisable(busy);
+        SavePathButton.setDisable(busy);
+        CriticalPathButton.setDisable(busy);
+        ReduceEdgesCheckBox.setDisable(busy);
+        stepSlider.setDisable(busy);
+        CancelButton.setDisable(!busy);
+    }
+
+    // Поиск вершины по имени и прокрутка пути к ней
+    @FXML
+    void onFindVertex(ActionEvent event) {
+        if (sorter == null) {
+            showAlert(AlertType.WARNING, "Warning", "No graph", "Load a graph first");
+            return;
+        }
+
+        String name = searchField.getText().trim();
+        int v = sorter.getCsrGraph().indexOfName(name);
+        if (v < 0) {
+            showAlert(AlertType.WARNING, "Warning", "Vertex not found", "No vertex named \"" + name + "\"");
+            return;
+        }
+        int index = pathModel.positionOf(v);
+        if (index < 0) {
+            showAlert(AlertType.INFORMATION, "Not sorted yet", "Vertex is not in the path",
+                      "Vertex \"" + name + "\" has not been reached by the sort yet");
+            return;
         }
-        path.setLength(path.length() - 4); // Удаляем последний " -> " (4 символа)
-        pathLabel.setText(path.toString());
+        pathList.scrollTo(index);
+        pathList.getSelectionModel().select(index);
     }
 
     private void showAlert(AlertType type, String title, String header, String content) {
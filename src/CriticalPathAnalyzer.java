@@ -0,0 +1,187 @@
+import java.util.Arrays;
+
+/**
+ * Анализ критического пути графа работ.
+ *
+ * Вес вершины - длительность работы, вес ребра - задержка между концом
+ * одной работы и началом следующей. По топологическому порядку считаются
+ * раннее начало каждой работы (прямой проход) и позднее начало, не сдвигающее
+ * окончание проекта (обратный проход); резерв - их разность. Работы с нулевым
+ * резервом лежат на критическом пути, самом длинном пути графа. Задержка
+ * может быть отрицательной, но работа не начинается раньше момента 0.
+ *
+ * Оба прохода идут по CSR-массивам рёбер и занимают O(V + E), все
+ * результаты хранятся в примитивных массивах double.
+ */
+public final class CriticalPathAnalyzer {
+    // Относительная погрешность, в пределах которой резерв считается нулевым
+    private static final double SLACK_EPSILON = 1e-9;
+
+    private final CsrGraph graph;
+    private final double[] earliestStart;
+    private final double[] latestStart;
+    private final double length;
+    private final int[] path;
+
+    /**
+     * Сортирует граф и анализирует его
+     *
+     * @param graph граф работ
+     * @throws CycleException если граф содержит цикл
+     */
+    public CriticalPathAnalyzer(CsrGraph graph) {
+        this(graph, sortedOrder(graph));
+    }
+
+    /**
+     * Анализирует граф по уже найденному топологическому порядку
+     *
+     * @param graph граф работ
+     * @param order индексы всех вершин в топологическом порядке
+     * @throws IllegalArgumentException если порядок содержит не все вершины
+     */
+    public CriticalPathAnalyzer(CsrGraph graph, int[] order) {
+        int n = graph.vertexCount();
+        if (order.length != n) {
+            throw new IllegalArgumentException("Порядок должен содержать все " + n + " вершин, а не " + order.length);
+        }
+        this.graph = graph;
+        this.earliestStart = new double[n];
+        this.latestStart = new double[n];
+        // predecessor[v] - вершина, через которую достигается раннее начало v
+        int[] predecessor = new int[n];
+        Arrays.fill(predecessor, -1);
+        // До первого входящего ребра раннее начало не определено, поэтому первое же ребро
+        // записывает предшественника, даже если через него работа начинается в момент 0
+        Arrays.fill(earliestStart, Double.NEGATIVE_INFINITY);
+
+        // Прямой проход: раннее начало - максимум по входящим рёбрам, но не раньше начала проекта
+        double finish = 0;
+        int last = -1;
+        for (int v : order) {
+            if (earliestStart[v] < 0) {
+                // Исток или работа, которую отрицательная задержка прижала к началу проекта
+                earliestStart[v] = 0;
+                predecessor[v] = -1;
+            }
+            double end = earliestStart[v] + graph.vertexWeight(v);
+            if (last < 0 || end > finish) {
+                finish = end;
+                last = v;
+            }
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                int w = graph.target(e);
+                double start = end + graph.edgeWeight(e);
+                if (start > earliestStart[w]) {
+                    earliestStart[w] = start;
+                    predecessor[w] = v;
+                }
+            }
+        }
+        this.length = finish;
+
+        // Обратный проход: позднее окончание - минимум по исходящим рёбрам
+        for (int i = n - 1; i >= 0; i--) {
+            int v = order[i];
+            double latestFinish = finish;
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                latestFinish = Math.min(latestFinish, latestStart[graph.target(e)] - graph.edgeWeight(e));
+            }
+            latestStart[v] = latestFinish - graph.vertexWeight(v);
+        }
+
+        int count = 0;
+        for (int v = last; v >= 0; v = predecessor[v]) {
+            count++;
+        }
+        this.path = new int[count];
+        for (int v = last; v >= 0; v = predecessor[v]) {
+            path[--count] = v;
+        }
+    }
+
+    private static int[] sortedOrder(CsrGraph graph) {
+        TopologicalSorter sorter = new TopologicalSorter(graph);
+        int[] order = new int[graph.vertexCount()];
+        int count = 0;
+        while (sorter.hasNext()) {
+            order[count++] = sorter.nextIndex();
+        }
+        sorter.requireComplete();
+        return order;
+    }
+
+    /**
+     * @return граф, по которому выполнен анализ
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return длительность проекта - длина самого длинного пути
+     */
+    public double length() {
+        return length;
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return самое раннее начало работы
+     */
+    public double earliestStart(int v) {
+        return earliestStart[v];
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return самое раннее окончание работы
+     */
+    public double earliestFinish(int v) {
+        return earliestStart[v] + graph.vertexWeight(v);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return самое позднее начало, не сдвигающее окончание проекта
+     */
+    public double latestStart(int v) {
+        return latestStart[v];
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return самое позднее окончание, не сдвигающее окончание проекта
+     */
+    public double latestFinish(int v) {
+        return latestStart[v] + graph.vertexWeight(v);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return резерв времени работы
+     */
+    public double slack(int v) {
+        return latestStart[v] - earliestStart[v];
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return true, если у работы нет резерва
+     */
+    public boolean isCritical(int v) {
+        return slack(v) <= SLACK_EPSILON * Math.max(1.0, Math.abs(length));
+    }
+
+    /**
+     * Возвращает один из самых длинных путей графа.
+     * Если таких путей несколько, выбирается найденный первым при прямом проходе.
+     * Путь начинается с истока, кроме случая, когда отрицательная задержка
+     * прижала его первую работу к моменту 0.
+     *
+     * @return индексы вершин критического пути от начала к концу
+     */
+    public int[] path() {
+        return path.clone();
+    }
+}
@@ -0,0 +1,572 @@
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Компактное неизменяемое представление ориентированного графа
+ * в формате CSR (compressed sparse row).
+ * Вершины задаются индексами 0..n-1, исходящие рёбра вершины v лежат
+ * в массиве targets на отрезке [offsets[v], offsets[v + 1]).
+ * Имена и координаты хранятся в отдельных таблицах (или в VertexStore,
+ * куда их складывает парсер), а объекты Vertex создаются только
+ * по запросу через интерфейс IConstGraph: по одному на запрошенный индекс,
+ * соседи и веса читаются из CSR-массивов без копирования.
+ * Массивы хранятся в IntBuffer, поэтому могут лежать как в куче,
+ * так и вне её (например, в отображённом в память файле).
+ * Веса вершин и рёбер (рёбер - в порядке массива targets) необязательны:
+ * если их нет, используются значения по умолчанию из Vertex.
+ */
+public final class CsrGraph implements IConstGraph {
+    private final int vertexCount;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+
+    // Таблица вершин; если её нет, вершины лежат в полях ниже
+    private final VertexStore store;
+    private final IntBuffer xs;
+    private final IntBuffer ys;
+
+    // Имена хранятся либо строками, либо таблицей UTF-8 байтов со смещениями
+    private final String[] names;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer nameBytes;
+
+    // Веса вершин и рёбер или null, если у всех значение по умолчанию
+    private final DoubleBuffer vertexWeights;
+    private final DoubleBuffer edgeWeights;
+
+    private List<Vertex> views;
+    // Исходные вершины и их индексы, если граф построен через fromGraph
+    private Map<Vertex, Integer> indexByView;
+    // Созданные представления; null - ещё не запрошенные
+    private Vertex[] viewCache;
+    private Map<String, Integer> indexByName;
+
+    /**
+     * Создает граф из готовых CSR-массивов
+     *
+     * @param names имена вершин
+     * @param xs координаты X вершин
+     * @param ys координаты Y вершин
+     * @param offsets смещения списков смежности (длина n + 1)
+     * @param targets концы рёбер
+     * @param vertexWeights веса вершин или null
+     * @param edgeWeights веса рёбер в порядке targets или null
+     */
+    CsrGraph(String[] names, int[] xs, int[] ys, int[] offsets, int[] targets,
+             double[] vertexWeights, double[] edgeWeights) {
+        this(null, names, null, null, IntBuffer.wrap(xs), IntBuffer.wrap(ys),
+             vertexWeights != null ? DoubleBuffer.wrap(vertexWeights) : null,
+             IntBuffer.wrap(offsets), IntBuffer.wrap(targets),
+             edgeWeights != null ? DoubleBuffer.wrap(edgeWeights) : null);
+    }
+
+    /**
+     * Создает граф поверх готовых буферов без копирования.
+     * Имя вершины v - это UTF-8 байты nameBytes на отрезке
+     * [nameOffsets[v], nameOffsets[v + 1]).
+     *
+     * @param nameOffsets смещения имён (длина n + 1)
+     * @param nameBytes UTF-8 байты имён
+     * @param xs координаты X вершин
+     * @param ys координаты Y вершин
+     * @param offsets смещения списков смежности (длина n + 1)
+     * @param targets концы рёбер
+     * @param vertexWeights веса вершин или null
+     * @param edgeWeights веса рёбер в порядке targets или null
+     */
+    CsrGraph(IntBuffer nameOffsets, ByteBuffer nameBytes, IntBuffer xs, IntBuffer ys,
+             IntBuffer offsets, IntBuffer targets, DoubleBuffer vertexWeights, DoubleBuffer edgeWeights) {
+        this(null, null, nameOffsets, nameBytes, xs, ys, vertexWeights, offsets, targets, edgeWeights);
+    }
+
+    /**
+     * Создает граф поверх таблицы вершин без копирования.
+     * Таблицу нельзя изменять, пока граф используется.
+     *
+     * @param vertices таблица вершин
+     * @param offsets смещения списков смежности (длина n + 1)
+     * @param targets концы рёбер
+     * @param edgeWeights веса рёбер в порядке targets или null
+     */
+    CsrGraph(VertexStore vertices, int[] offsets, int[] targets, double[] edgeWeights) {
+        this(vertices, null, null, null, null, null, null, IntBuffer.wrap(offsets), IntBuffer.wrap(targets),
+             edgeWeights != null ? DoubleBuffer.wrap(edgeWeights) : null);
+    }
+
+    private CsrGraph(VertexStore store, String[] names, IntBuffer nameOffsets, ByteBuffer nameBytes,
+                     IntBuffer xs, IntBuffer ys, DoubleBuffer vertexWeights,
+                     IntBuffer offsets, IntBuffer targets, DoubleBuffer edgeWeights) {
+        this.vertexCount = store != null ? store.size() : xs.limit();
+        this.store = store;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.nameBytes = nameBytes;
+        this.xs = xs;
+        this.ys = ys;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.vertexWeights = vertexWeights;
+        this.edgeWeights = edgeWeights;
+    }
+
+    /**
+     * Строит CSR-граф по спискам рёбер, заданных индексами вершин.
+     * Порядок рёбер каждой вершины сохраняется.
+     *
+     * @param names имена вершин
+     * @param xs координаты X вершин
+     * @param ys координаты Y вершин
+     * @param sources индексы начальных вершин рёбер
+     * @param targets индексы конечных вершин рёбер
+     * @param edgeCount количество используемых элементов в sources/targets
+     * @return CSR-граф
+     * @throws IllegalArgumentException если индекс вне диапазона или ребро повторяется
+     */
+    static CsrGraph fromEdges(String[] names, int[] xs, int[] ys,
+                              int[] sources, int[] targets, int edgeCount) {
+        return fromEdges(names, xs, ys, null, sources, targets, null, edgeCount);
+    }
+
+    /**
+     * Строит CSR-граф с весами по спискам рёбер, заданных индексами вершин.
+     * Веса рёбер переставляются вместе с рёбрами.
+     *
+     * @param names имена вершин
+     * @param xs координаты X вершин
+     * @param ys координаты Y вершин
+     * @param vertexWeights веса вершин или null
+     * @param sources индексы начальных вершин рёбер
+     * @param targets индексы конечных вершин рёбер
+     * @param edgeWeights веса рёбер в порядке sources/targets или null
+     * @param edgeCount количество используемых элементов в sources/targets
+     * @return CSR-граф
+     * @throws IllegalArgumentException если индекс вне диапазона или ребро повторяется
+     */
+    static CsrGraph fromEdges(String[] names, int[] xs, int[] ys, double[] vertexWeights,
+                              int[] sources, int[] targets, double[] edgeWeights, int edgeCount) {
+        Adjacency adjacency = adjacency(names.length, v -> names[v], sources, targets, edgeWeights, edgeCount);
+        return new CsrGraph(names, xs, ys, adjacency.offsets(), adjacency.targets(),
+                            vertexWeights, adjacency.weights());
+    }
+
+    /**
+     * Строит CSR-граф поверх таблицы вершин по спискам рёбер, заданных индексами вершин
+     *
+     * @param vertices таблица вершин (не изменяется, пока граф используется)
+     * @param sources индексы начальных вершин рёбер
+     * @param targets индексы конечных вершин рёбер
+     * @param edgeWeights веса рёбер в порядке sources/targets или null
+     * @param edgeCount количество используемых элементов в sources/targets
+     * @return CSR-граф
+     * @throws IllegalArgumentException если индекс вне диапазона или ребро повторяется
+     */
+    static CsrGraph fromEdges(VertexStore vertices, int[] sources, int[] targets,
+                              double[] edgeWeights, int edgeCount) {
+        Adjacency adjacency = adjacency(vertices.size(), vertices::name, sources, targets, edgeWeights, edgeCount);
+        return new CsrGraph(vertices, adjacency.offsets(), adjacency.targets(), adjacency.weights());
+    }
+
+    // Раскладывает рёбра по начальным вершинам; имена нужны только для сообщения об ошибке
+    private static Adjacency adjacency(int n, IntFunction<String> nameOf, int[] sources, int[] targets,
+                                       double[] edgeWeights, int edgeCount) {
+        int[] offsets = new int[n + 1];
+        LongHashSet seen = new LongHashSet(edgeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int s = sources[i];
+            int t = targets[i];
+            if (s < 0 || s >= n || t < 0 || t >= n) {
+                throw new IllegalArgumentException("Вершины добавляемых рёбер должны существовать в графе");
+            }
+            if (!seen.add(((long) s << 32) | t)) {
+                throw new IllegalArgumentException("Ребро уже существует: " + nameOf.apply(s) + " -> " + nameOf.apply(t));
+            }
+            offsets[s + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] cursor = Arrays.copyOf(offsets, n);
+        int[] csrTargets = new int[edgeCount];
+        double[] csrWeights = edgeWeights != null ? new double[edgeCount] : null;
+        for (int i = 0; i < edgeCount; i++) {
+            int slot = cursor[sources[i]]++;
+            csrTargets[slot] = targets[i];
+            if (csrWeights != null) {
+                csrWeights[slot] = edgeWeights[i];
+            }
+        }
+        return new Adjacency(offsets, csrTargets, csrWeights);
+    }
+
+    private record Adjacency(int[] offsets, int[] targets, double[] weights) {}
+
+    /**
+     * Создает граф с теми же вершинами (таблицы вершин общие) и другими рёбрами
+     *
+     * @param offsets смещения списков смежности (длина n + 1)
+     * @param targets концы рёбер
+     * @param edgeWeights веса рёбер в порядке targets или null
+     * @return новый граф
+     */
+    CsrGraph withEdges(int[] offsets, int[] targets, double[] edgeWeights) {
+        return new CsrGraph(store, names, nameOffsets, nameBytes, xs, ys, vertexWeights,
+                            IntBuffer.wrap(offsets), IntBuffer.wrap(targets),
+                            edgeWeights != null ? DoubleBuffer.wrap(edgeWeights) : null);
+    }
+
+    /**
+     * Строит CSR-граф по существующему графу.
+     * Исходные объекты Vertex переиспользуются как представления вершин,
+     * поэтому vertexAt возвращает те же экземпляры, что и исходный граф.
+     *
+     * @param graph исходный граф
+     * @return CSR-граф
+     */
+    public static CsrGraph fromGraph(IConstGraph graph) {
+        if (graph instanceof CsrGraph) {
+            return (CsrGraph) graph;
+        }
+
+        List<Vertex> vertices = graph.getVertices();
+        int n = vertices.size();
+        Map<Vertex, Integer> index = new IdentityHashMap<>(n * 2);
+        String[] names = new String[n];
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int[] offsets = new int[n + 1];
+        // Массивы весов создаются при первом весе, отличном от значения по умолчанию
+        double[] vertexWeights = null;
+        for (int i = 0; i < n; i++) {
+            Vertex v = vertices.get(i);
+            index.put(v, i);
+            names[i] = v.getName();
+            xs[i] = v.getX();
+            ys[i] = v.getY();
+            if (vertexWeights == null && v.getWeight() != Vertex.DEFAULT_WEIGHT) {
+                vertexWeights = new double[n];
+                Arrays.fill(vertexWeights, 0, i, Vertex.DEFAULT_WEIGHT);
+            }
+            if (vertexWeights != null) {
+                vertexWeights[i] = v.getWeight();
+            }
+            offsets[i + 1] = offsets[i] + v.getNeighbors().size();
+        }
+
+        int[] targets = new int[offsets[n]];
+        double[] edgeWeights = null;
+        int k = 0;
+        for (Vertex v : vertices) {
+            List<Vertex> neighbors = v.getNeighbors();
+            for (int j = 0; j < neighbors.size(); j++) {
+                Integer target = index.get(neighbors.get(j));
+                if (target == null) {
+                    throw new IllegalArgumentException("Вершины добавляемых рёбер должны существовать в графе");
+                }
+                double weight = v.getEdgeWeight(j);
+                if (edgeWeights == null && weight != Vertex.DEFAULT_EDGE_WEIGHT) {
+                    edgeWeights = new double[targets.length];
+                    Arrays.fill(edgeWeights, 0, k, Vertex.DEFAULT_EDGE_WEIGHT);
+                }
+                if (edgeWeights != null) {
+                    edgeWeights[k] = weight;
+                }
+                targets[k++] = target;
+            }
+        }
+
+        CsrGraph csr = new CsrGraph(names, xs, ys, offsets, targets, vertexWeights, edgeWeights);
+        csr.views = vertices;
+        csr.indexByView = index;
+        return csr;
+    }
+
+    /**
+     * @return количество вершин
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @return количество рёбер
+     */
+    public int edgeCount() {
+        return targets.limit();
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return индекс первого исходящего ребра вершины
+     */
+    public int firstEdge(int v) {
+        return offsets.get(v);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return индекс, следующий за последним исходящим ребром вершины
+     */
+    public int lastEdge(int v) {
+        return offsets.get(v + 1);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return количество исходящих рёбер вершины
+     */
+    public int outDegree(int v) {
+        return offsets.get(v + 1) - offsets.get(v);
+    }
+
+    /**
+     * @param e индекс ребра
+     * @return индекс конечной вершины ребра
+     */
+    public int target(int e) {
+        return targets.get(e);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return имя вершины
+     */
+    public String name(int v) {
+        if (store != null) {
+            return store.name(v);
+        }
+        if (names != null) {
+            return names[v];
+        }
+        int from = nameOffsets.get(v);
+        int length = nameOffsets.get(v + 1) - from;
+        byte[] utf8 = new byte[length];
+        nameBytes.get(from, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return координата X вершины
+     */
+    public int x(int v) {
+        return store != null ? store.x(v) : xs.get(v);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return координата Y вершины
+     */
+    public int y(int v) {
+        return store != null ? store.y(v) : ys.get(v);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return вес вершины
+     */
+    public double vertexWeight(int v) {
+        if (store != null) {
+            return store.weight(v);
+        }
+        return vertexWeights != null ? vertexWeights.get(v) : Vertex.DEFAULT_WEIGHT;
+    }
+
+    /**
+     * @param e индекс ребра
+     * @return вес ребра
+     */
+    public double edgeWeight(int e) {
+        return edgeWeights != null ? edgeWeights.get(e) : Vertex.DEFAULT_EDGE_WEIGHT;
+    }
+
+    /**
+     * @return true, если у графа заданы веса вершин
+     */
+    public boolean hasVertexWeights() {
+        return store != null ? store.hasWeights() : vertexWeights != null;
+    }
+
+    /**
+     * @return true, если у графа заданы веса рёбер
+     */
+    public boolean hasEdgeWeights() {
+        return edgeWeights != null;
+    }
+
+    /**
+     * Возвращает представление вершины в виде объекта Vertex.
+     * Представление создаётся при первом запросе этого индекса
+     * и потом возвращается то же самое.
+     *
+     * @param v индекс вершины
+     * @return вершина
+     */
+    public Vertex vertexAt(int v) {
+        if (indexByView != null) {
+            return views.get(v);
+        }
+        Objects.checkIndex(v, vertexCount);
+        // Гонка потоков здесь безвредна: лишнее представление равно первому и знает свой индекс
+        Vertex[] cache = viewCache;
+        if (cache == null) {
+            cache = new Vertex[vertexCount];
+            viewCache = cache;
+        }
+        Vertex view = cache[v];
+        if (view == null) {
+            view = new View(v);
+            cache[v] = view;
+        }
+        return view;
+    }
+
+    /**
+     * Возвращает индекс вершины по её представлению
+     *
+     * @param vertex вершина
+     * @return индекс вершины или -1, если вершина не принадлежит графу
+     */
+    public int indexOf(Vertex vertex) {
+        if (vertex instanceof View view && view.owner() == this) {
+            return view.index;
+        }
+        if (indexByView != null) {
+            Integer index = indexByView.get(vertex);
+            return index != null ? index : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Возвращает вершину по имени
+     *
+     * @param name имя вершины
+     * @return вершина с заданным именем или null, если такой вершины нет
+     */
+    @Override
+    public Vertex getVertexByName(String name) {
+        int index = indexOfName(name);
+        return index >= 0 ? vertexAt(index) : null;
+    }
+
+    /**
+     * Возвращает индекс вершины по имени, не создавая объектов Vertex
+     *
+     * @param name имя вершины
+     * @return индекс первой вершины с заданным именем или -1, если такой вершины нет
+     */
+    public int indexOfName(String name) {
+        if (store != null) {
+            return store.indexOf(name);
+        }
+        if (indexByName == null) {
+            int n = vertexCount();
+            Map<String, Integer> byName = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                byName.putIfAbsent(name(i), i);
+            }
+            indexByName = byName;
+        }
+        Integer index = indexByName.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Возвращает список всех вершин графа.
+     * Объекты Vertex создаются только для тех элементов, к которым обращаются.
+     *
+     * @return немодифицируемый список вершин
+     */
+    @Override
+    public List<Vertex> getVertices() {
+        if (views == null) {
+            views = new ViewList(v -> v, vertexCount);
+        }
+        return views;
+    }
+
+    /**
+     * Проверяет, является ли вершина представлением вершины этого графа
+     *
+     * @param vertex вершина для проверки
+     * @return true, если вершина есть в графе, иначе false
+     */
+    @Override
+    public boolean exists(Vertex vertex) {
+        return indexOf(vertex) >= 0;
+    }
+
+    /**
+     * Возвращает строковое представление графа
+     *
+     * @return строка, описывающая граф
+     */
+    @Override
+    public String toString() {
+        return String.format("CsrGraph(%d vertices, %d edges)", vertexCount(), edgeCount());
+    }
+
+    // Неизменяемое представление вершины: соседи и веса рёбер читаются из CSR-массивов
+    private final class View extends Vertex {
+        private final int index;
+
+        View(int index) {
+            super(name(index), x(index), y(index), vertexWeight(index));
+            this.index = index;
+        }
+
+        CsrGraph owner() {
+            return CsrGraph.this;
+        }
+
+        @Override
+        public List<Vertex> getNeighbors() {
+            int first = firstEdge(index);
+            return new ViewList(i -> target(first + i), lastEdge(index) - first);
+        }
+
+        @Override
+        public double getEdgeWeight(int i) {
+            Objects.checkIndex(i, outDegree(index));
+            return edgeWeight(firstEdge(index) + i);
+        }
+
+        @Override
+        void appendNeighbor(Vertex neighbor, double weight) {
+            throw new UnsupportedOperationException("Вершины CSR-графа нельзя изменять");
+        }
+
+        @Override
+        void removeNeighbor(Vertex neighbor) {
+            throw new UnsupportedOperationException("Вершины CSR-графа нельзя изменять");
+        }
+    }
+
+    // Список представлений вершин с индексами indexAt(0..size-1)
+    private final class ViewList extends AbstractList<Vertex> implements RandomAccess {
+        private final IntUnaryOperator indexAt;
+        private final int size;
+
+        ViewList(IntUnaryOperator indexAt, int size) {
+            this.indexAt = indexAt;
+            this.size = size;
+        }
+
+        @Override
+        public Vertex get(int i) {
+            Objects.checkIndex(i, size);
+            return vertexAt(indexAt.applyAsInt(i));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.BitSet;
+
+/**
+ * Поиск цикла в ориентированном графе за O(V + E).
+ * Обход в глубину реализован итеративно с явным стеком,
+ * поэтому глубина графа не ограничена размером стека потока.
+ */
+public final class CycleDetector {
+    private static final byte WHITE = 0;
+    private static final byte GRAY = 1;
+    private static final byte BLACK = 2;
+
+    // Приватный конструктор - утилитарный класс
+    private CycleDetector() {}
+
+    /**
+     * Ищет цикл во всём графе
+     *
+     * @param csr граф
+     * @return индексы вершин цикла по порядку или пустой массив, если граф ацикличен
+     */
+    public static int[] findCycle(CsrGraph csr) {
+        return findCycle(csr, null);
+    }
+
+    /**
+     * Ищет цикл в подграфе, порождённом заданными вершинами
+     *
+     * @param csr граф
+     * @param allowed вершины подграфа или null для всего графа
+     * @return индексы вершин цикла по порядку или пустой массив, если подграф ацикличен
+     */
+    public static int[] findCycle(CsrGraph csr, BitSet allowed) {
+        int n = csr.vertexCount();
+        byte[] color = new byte[n];
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+
+        for (int root = 0; root < n; root++) {
+            if (color[root] != WHITE || (allowed != null && !allowed.get(root))) {
+                continue;
+            }
+
+            int depth = 0;
+            stack[0] = root;
+            cursor[0] = csr.firstEdge(root);
+            color[root] = GRAY;
+            while (depth >= 0) {
+                int v = stack[depth];
+                if (cursor[depth] == csr.lastEdge(v)) {
+                    color[v] = BLACK;
+                    depth--;
+                    continue;
+                }
+
+                int w = csr.target(cursor[depth]++);
+                if (allowed != null && !allowed.get(w)) {
+                    continue;
+                }
+                if (color[w] == GRAY) {
+                    return extractCycle(stack, depth, w);
+                }
+                if (color[w] == WHITE) {
+                    color[w] = GRAY;
+                    stack[++depth] = w;
+                    cursor[depth] = csr.firstEdge(w);
+                }
+            }
+        }
+        return new int[0];
+    }
+
+    // Цикл - это хвост стека обхода, начиная с вершины start
+    private static int[] extractCycle(int[] stack, int depth, int start) {
+        int from = depth;
+        while (stack[from] != start) {
+            from--;
+        }
+        int[] cycle = new int[depth - from + 1];
+        System.arraycopy(stack, from, cycle, 0, cycle.length);
+        return cycle;
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Исключение, сообщающее о цикле в графе.
+ * Содержит сам цикл: последовательность вершин, в которой каждая
+ * следующая достижима ребром из предыдущей, а из последней есть ребро в первую.
+ */
+public class CycleException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_DESCRIBED = 20;
+
+    // Vertex не сериализуется, поэтому после десериализации цикл остаётся только в сообщении
+    private final transient List<Vertex> cycle;
+
+    /**
+     * @param message описание ошибки
+     * @param cycle вершины цикла по порядку
+     */
+    public CycleException(String message, List<Vertex> cycle) {
+        super(message + ": " + describe(cycle));
+        this.cycle = List.copyOf(cycle);
+    }
+
+    /**
+     * @return вершины цикла по порядку; пустой список, если исключение было десериализовано
+     */
+    public List<Vertex> getCycle() {
+        return cycle != null ? cycle : List.of();
+    }
+
+    /**
+     * Формирует строку вида "a -> b -> c -> a".
+     * Длинные циклы сокращаются до первых вершин.
+     *
+     * @param cycle вершины цикла
+     * @return строковое представление цикла
+     */
+    public static String describe(List<Vertex> cycle) {
+        if (cycle.isEmpty()) {
+            return "";
+        }
+        if (cycle.size() > MAX_DESCRIBED) {
+            return cycle.stream().limit(MAX_DESCRIBED).map(Vertex::getName).collect(Collectors.joining(" -> "))
+                + " -> ... (" + cycle.size() + " вершин)";
+        }
+        return cycle.stream().map(Vertex::getName).collect(Collectors.joining(" -> "))
+            + " -> " + cycle.get(0).getName();
+    }
+}
@@ -0,0 +1,308 @@
+import java.util.*;
+
+/**
+ * Топологический порядок, поддерживаемый в актуальном состоянии
+ * при добавлении и удалении рёбер графа (алгоритм Пирса-Келли).
+ *
+ * При добавлении ребра x -> y, нарушающего текущий порядок, перестраивается
+ * только затронутая область: вершины, достижимые из y с позицией не правее x,
+ * и вершины, из которых достижим x, с позицией не левее y.
+ * Ребро, создающее цикл, отклоняется исключением CycleException до того,
+ * как оно попадёт в граф.
+ */
+public final class DynamicTopologicalOrder implements GraphListener {
+    private final Graph graph;
+
+    // position[v] - позиция вершины v, vertexAt[p] - вершина на позиции p
+    private int[] position;
+    private int[] vertexAt;
+    private int size;
+
+    // Списки входящих рёбер для обратного обхода
+    private int[][] predecessors;
+    private int[] predecessorCount;
+
+    // Служебные массивы обхода; пометки сбрасываются сменой эпохи
+    private int[] mark;
+    private int epoch;
+    private int[] parent;
+    private final IntStack stack = new IntStack();
+    private final IntStack forward = new IntStack();
+    private final IntStack backward = new IntStack();
+
+    /**
+     * Строит начальный порядок и подписывается на изменения графа
+     *
+     * @param graph граф
+     * @throws CycleException если граф уже содержит цикл
+     */
+    public DynamicTopologicalOrder(Graph graph) {
+        this.graph = graph;
+        int n = graph.getVertices().size();
+        int capacity = Math.max(16, n);
+        position = new int[capacity];
+        vertexAt = new int[capacity];
+        predecessors = new int[capacity][];
+        predecessorCount = new int[capacity];
+        mark = new int[capacity];
+        parent = new int[capacity];
+
+        TopologicalSorter sorter = new TopologicalSorter(graph);
+        while (sorter.hasNext()) {
+            int v = sorter.nextIndex();
+            position[v] = size;
+            vertexAt[size++] = v;
+        }
+        if (size != n) {
+            throw new CycleException("Граф содержит цикл", sorter.findCycle());
+        }
+
+        for (int v = 0; v < n; v++) {
+            for (Vertex u : graph.getVertices().get(v).getNeighbors()) {
+                addPredecessor(graph.indexOf(u), v);
+            }
+        }
+        graph.addListener(this);
+    }
+
+    /**
+     * Отписывается от изменений графа
+     */
+    public void detach() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * Возвращает текущий топологический порядок
+     *
+     * @return неизменяемый список вершин в порядке сортировки
+     */
+    public List<Vertex> order() {
+        List<Vertex> vertices = graph.getVertices();
+        return new AbstractList<Vertex>() {
+            @Override
+            public Vertex get(int index) {
+                Objects.checkIndex(index, size);
+                return vertices.get(vertexAt[index]);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Возвращает позицию вершины в текущем порядке
+     *
+     * @param vertex вершина
+     * @return позиция вершины
+     * @throws IllegalArgumentException если вершины нет в графе
+     */
+    public int positionOf(Vertex vertex) {
+        int v = graph.indexOf(vertex);
+        if (v < 0) {
+            throw new IllegalArgumentException("Вершина отсутствует в графе: " + vertex.getName());
+        }
+        return position[v];
+    }
+
+    @Override
+    public void vertexAdded(int vertex) {
+        ensureCapacity(vertex + 1);
+        position[vertex] = size;
+        vertexAt[size++] = vertex;
+    }
+
+    @Override
+    public void beforeEdgeAdded(int source, int target) {
+        if (source == target) {
+            throw new CycleException("Ребро создаёт цикл", List.of(vertex(source)));
+        }
+        int lower = position[target];
+        int upper = position[source];
+        if (lower > upper) {
+            return; // Порядок уже согласован с ребром
+        }
+
+        epoch++;
+        forward.clear();
+        backward.clear();
+        if (searchForward(target, upper, source)) {
+            throw new CycleException("Ребро создаёт цикл", pathTo(source, target));
+        }
+        searchBackward(source, lower);
+        reorder();
+    }
+
+    @Override
+    public void edgeAdded(int source, int target) {
+        addPredecessor(target, source);
+    }
+
+    @Override
+    public void edgeRemoved(int source, int target) {
+        // Удаление ребра не нарушает порядок, обновляем только входящие списки
+        int[] list = predecessors[target];
+        int count = predecessorCount[target];
+        for (int i = 0; i < count; i++) {
+            if (list[i] == source) {
+                list[i] = list[count - 1];
+                predecessorCount[target]--;
+                return;
+            }
+        }
+    }
+
+    // Обход вперёд от start по вершинам с позицией не больше upper
+    private boolean searchForward(int start, int upper, int goal) {
+        stack.clear();
+        stack.push(start);
+        mark[start] = epoch;
+        parent[start] = -1;
+        while (!stack.isEmpty()) {
+            int v = stack.pop();
+            forward.push(v);
+            for (Vertex neighbor : vertex(v).getNeighbors()) {
+                int w = graph.indexOf(neighbor);
+                if (w == goal) {
+                    parent[w] = v;
+                    return true;
+                }
+                if (mark[w] != epoch && position[w] < upper) {
+                    mark[w] = epoch;
+                    parent[w] = v;
+                    stack.push(w);
+                }
+            }
+        }
+        return false;
+    }
+
+    // Обход назад от start по вершинам с позицией не меньше lower
+    private void searchBackward(int start, int lower) {
+        stack.clear();
+        stack.push(start);
+        mark[start] = epoch;
+        while (!stack.isEmpty()) {
+            int v = stack.pop();
+            backward.push(v);
+            int[] list = predecessors[v];
+            for (int i = 0; i < predecessorCount[v]; i++) {
+                int w = list[i];
+                if (mark[w] != epoch && position[w] > lower) {
+                    mark[w] = epoch;
+                    stack.push(w);
+                }
+            }
+        }
+    }
+
+    // Назначает затронутым вершинам их же позиции: сначала предки, затем потомки
+    private void reorder() {
+        int[] back = backward.toSortedByPosition(position);
+        int[] fwd = forward.toSortedByPosition(position);
+        int[] slots = new int[back.length + fwd.length];
+        int k = 0;
+        for (int v : back) {
+            slots[k++] = position[v];
+        }
+        for (int v : fwd) {
+            slots[k++] = position[v];
+        }
+        Arrays.sort(slots);
+
+        k = 0;
+        for (int v : back) {
+            place(v, slots[k++]);
+        }
+        for (int v : fwd) {
+            place(v, slots[k++]);
+        }
+    }
+
+    private void place(int v, int slot) {
+        position[v] = slot;
+        vertexAt[slot] = v;
+    }
+
+    // Путь target -> ... -> source по родителям прямого обхода
+    private List<Vertex> pathTo(int source, int target) {
+        List<Vertex> path = new ArrayList<>();
+        for (int v = source; v != -1; v = parent[v]) {
+            path.add(vertex(v));
+            if (v == target) {
+                break;
+            }
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private void addPredecessor(int vertex, int predecessor) {
+        int[] list = predecessors[vertex];
+        int count = predecessorCount[vertex];
+        if (list == null) {
+            list = predecessors[vertex] = new int[4];
+        } else if (count == list.length) {
+            list = predecessors[vertex] = Arrays.copyOf(list, count << 1);
+        }
+        list[count] = predecessor;
+        predecessorCount[vertex]++;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > position.length) {
+            int capacity = Math.max(n, position.length << 1);
+            position = Arrays.copyOf(position, capacity);
+            vertexAt = Arrays.copyOf(vertexAt, capacity);
+            predecessors = Arrays.copyOf(predecessors, capacity);
+            predecessorCount = Arrays.copyOf(predecessorCount, capacity);
+            mark = Arrays.copyOf(mark, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+        }
+    }
+
+    private Vertex vertex(int v) {
+        return graph.getVertices().get(v);
+    }
+
+    // Растущий стек int без упаковки
+    private static final class IntStack {
+        private int[] items = new int[16];
+        private int size;
+
+        void push(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size << 1);
+            }
+            items[size++] = value;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toSortedByPosition(int[] position) {
+            long[] keyed = new long[size];
+            for (int i = 0; i < size; i++) {
+                keyed[i] = ((long) position[items[i]] << 32) | items[i];
+            }
+            Arrays.sort(keyed);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = (int) keyed[i];
+            }
+            return result;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 import java.util.*;
 
 /**
- * Реализация направленного графа с возможностью добавления вершин и рёбер
+ * Реализация направленного графа с возможностью добавления вершин и рёбер.
+ * Вершины проиндексированы по значению и по имени, рёбра хранятся в хеш-множестве,
+ * поэтому добавление и проверки выполняются за O(1) в среднем.
  */
 public class Graph implements IGraph {
-    private List<Vertex> vertices;
+    private final List<Vertex> vertices;
+    private final Map<Vertex, Integer> indexByVertex;
+    private final Map<String, Vertex> vertexByName;
+    private final LongHashSet edges;
+    private final List<GraphListener> listeners = new ArrayList<>();
 
     /**
      * Создает пустой граф
@@ -14,12 +20,31 @@ public class Graph implements IGraph {
     }
 
     /**
-     * Создает граф с заданным списком вершин
+     * Создает граф с заданным списком вершин.
+     * Рёбра, уже заданные у вершин через соседей, тоже попадают в индекс.
      *
      * @param vertices список вершин графа
+     * @throws IllegalArgumentException если в списке есть повторяющиеся вершины
      */
     public Graph(List<Vertex> vertices) {
-        this.vertices = vertices;
+        this.vertices = new ArrayList<>(vertices.size());
+        this.indexByVertex = new HashMap<>(vertices.size() * 2);
+        this.vertexByName = new HashMap<>(vertices.size() * 2);
+        this.edges = new LongHashSet();
+
+        for (Vertex v : vertices) {
+            insertVertex(v);
+        }
+        // Индексы берутся из таблицы напрямую, а не через переопределяемые exists/indexOf
+        for (int v = 0; v < this.vertices.size(); v++) {
+            for (Vertex u : this.vertices.get(v).getNeighbors()) {
+                Integer target = indexByVertex.get(u);
+                if (target == null || this.vertices.get(target) != u) {
+                    throw new IllegalArgumentException("Вершины добавляемых рёбер должны существовать в графе");
+                }
+                edges.add(edgeKey(v, target));
+            }
+        }
     }
 
     /**
@@ -30,11 +55,22 @@ public class Graph implements IGraph {
      */
     @Override
     public void addVertex (Vertex vertex) {
-        if (exists(vertex)) {
+        insertVertex(vertex);
+    }
+
+    // Закрытая, поэтому конструктор вызывает её без риска попасть в метод подкласса
+    private void insertVertex(Vertex vertex) {
+        if (indexByVertex.containsKey(vertex)) {
             throw new IllegalArgumentException("Вершина в графе уже существует");
         }
 
+        int index = vertices.size();
+        indexByVertex.put(vertex, index);
+        vertexByName.putIfAbsent(vertex.getName(), vertex);
         vertices.add(vertex);
+        for (GraphListener listener : listeners) {
+            listener.vertexAdded(index);
+        }
     }
 
     /**
@@ -46,18 +82,153 @@ public class Graph implements IGraph {
      */
     @Override
     public void addEdge(Vertex _s, Vertex _e) {
+        addEdge(_s, _e, Vertex.DEFAULT_EDGE_WEIGHT);
+    }
+
+    /**
+     * Добавляет ориентированное ребро с весом от вершины _s к вершине _e
+     *
+     * @param _s начальная вершина
+     * @param _e конечная вершина
+     * @param weight вес ребра
+     * @throws IllegalArgumentException если хотя бы одна из вершин отсутствует в графе
+     */
+    public void addEdge(Vertex _s, Vertex _e, double weight) {
         if (!exists(_s) || !exists(_e)) {
             throw new IllegalArgumentException("Вершины добавляемых рёбер должны существовать в графе");
         }
-        
+
+        int s = indexOf(_s);
+        int e = indexOf(_e);
+
         // Проверка на существующее ребро
-        if (_s.getNeighbors().contains(_e)) {
+        if (edges.contains(edgeKey(s, e))) {
             throw new IllegalArgumentException(
                 "Ребро уже существует: " + _s.getName() + " -> " + _e.getName()
             );
         }
-        
-        _s.addNeighbor(_e);
+
+        for (GraphListener listener : listeners) {
+            listener.beforeEdgeAdded(s, e);
+        }
+        edges.add(edgeKey(s, e));
+        _s.appendNeighbor(_e, weight);
+        for (GraphListener listener : listeners) {
+            listener.edgeAdded(s, e);
+        }
+    }
+
+    /**
+     * Удаляет ориентированное ребро от вершины _s к вершине _e
+     *
+     * @param _s начальная вершина
+     * @param _e конечная вершина
+     * @throws IllegalArgumentException если такого ребра нет в графе
+     */
+    @Override
+    public void removeEdge(Vertex _s, Vertex _e) {
+        if (!exists(_s) || !exists(_e) || !edges.remove(edgeKey(indexOf(_s), indexOf(_e)))) {
+            throw new IllegalArgumentException(
+                "Ребро не существует: " + _s.getName() + " -> " + _e.getName()
+            );
+        }
+
+        _s.removeNeighbor(_e);
+        int s = indexOf(_s);
+        int e = indexOf(_e);
+        for (GraphListener listener : listeners) {
+            listener.edgeRemoved(s, e);
+        }
+    }
+
+    /**
+     * Добавляет пачку ориентированных рёбер, заданных индексами вершин.
+     * Сначала вся пачка проверяется (индексы и повторы, в том числе внутри самой пачки),
+     * и только затем рёбра добавляются, поэтому при ошибке граф не изменяется.
+     * Если слушатель отклоняет одно из рёбер, уже добавленные рёбра пачки удаляются.
+     *
+     * @param sources индексы начальных вершин
+     * @param targets индексы конечных вершин
+     * @throws IllegalArgumentException если индекс вне диапазона или ребро повторяется
+     */
+    public void addEdges(int[] sources, int[] targets) {
+        addEdges(sources, targets, null);
+    }
+
+    /**
+     * Добавляет пачку ориентированных рёбер с весами, заданных индексами вершин
+     *
+     * @param sources индексы начальных вершин
+     * @param targets индексы конечных вершин
+     * @param weights веса рёбер или null, если у всех рёбер вес по умолчанию
+     * @throws IllegalArgumentException если индекс вне диапазона или ребро повторяется
+     */
+    public void addEdges(int[] sources, int[] targets, double[] weights) {
+        if (sources.length != targets.length || (weights != null && weights.length != sources.length)) {
+            throw new IllegalArgumentException("Массивы начал и концов рёбер должны иметь одинаковую длину");
+        }
+
+        int n = vertices.size();
+        int[] outDegree = new int[n];
+        LongHashSet batch = new LongHashSet(sources.length);
+        for (int i = 0; i < sources.length; i++) {
+            int s = sources[i];
+            int t = targets[i];
+            if (s < 0 || s >= n || t < 0 || t >= n) {
+                throw new IllegalArgumentException("Вершины добавляемых рёбер должны существовать в графе");
+            }
+            long key = edgeKey(s, t);
+            if (edges.contains(key) || !batch.add(key)) {
+                throw new IllegalArgumentException(
+                    "Ребро уже существует: " + vertices.get(s).getName() + " -> " + vertices.get(t).getName()
+                );
+            }
+            outDegree[s]++;
+        }
+
+        edges.ensureCapacity(edges.size() + sources.length);
+        for (int v = 0; v < n; v++) {
+            if (outDegree[v] > 0) {
+                Vertex vertex = vertices.get(v);
+                vertex.ensureNeighborCapacity(vertex.getNeighbors().size() + outDegree[v]);
+            }
+        }
+        for (int i = 0; i < sources.length; i++) {
+            try {
+                for (GraphListener listener : listeners) {
+                    listener.beforeEdgeAdded(sources[i], targets[i]);
+                }
+            } catch (RuntimeException e) {
+                for (int j = i - 1; j >= 0; j--) {
+                    removeEdge(vertices.get(sources[j]), vertices.get(targets[j]));
+                }
+                throw e;
+            }
+            edges.add(edgeKey(sources[i], targets[i]));
+            vertices.get(sources[i]).appendNeighbor(vertices.get(targets[i]),
+                weights != null ? weights[i] : Vertex.DEFAULT_EDGE_WEIGHT);
+            for (GraphListener listener : listeners) {
+                listener.edgeAdded(sources[i], targets[i]);
+            }
+        }
+    }
+
+    /**
+     * Подписывает наблюдателя на изменения графа
+     *
+     * @param listener наблюдатель
+     */
+    public void addListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Отписывает наблюдателя от изменений графа
+     *
+     * @param listener наблюдатель
+     */
+    public void removeListener(GraphListener listener) {
+        listeners.remove(listener);
     }
 
     /**
@@ -68,12 +239,7 @@ public class Graph implements IGraph {
      */
     @Override
     public Vertex getVertexByName (String name) {
-        for (Vertex v : vertices) {
-            if (v.getName().equals(name)) {
-                return v;
-            }
-        }
-        return null;
+        return vertexByName.get(name);
     }
 
     /**
@@ -87,19 +253,28 @@ public class Graph implements IGraph {
     }
 
     /**
-     * Проверяет, существует ли вершина в графе
+     * Проверяет, существует ли вершина в графе.
+     * Вершина считается принадлежащей графу, только если это тот же самый объект,
+     * который был в него добавлен.
      *
      * @param vertex вершина для проверки
      * @return true, если вершина есть в графе, иначе false
      */
     @Override
     public boolean exists(Vertex vertex) {
-        for (Vertex v : vertices) {
-            if (vertex.equals(v)) {
-                return true;
-            }
-        }
-        return false;
+        Integer index = indexByVertex.get(vertex);
+        return index != null && vertices.get(index) == vertex;
+    }
+
+    /**
+     * Возвращает индекс вершины в списке вершин графа
+     *
+     * @param vertex вершина
+     * @return индекс вершины или -1, если вершины нет в графе
+     */
+    public int indexOf(Vertex vertex) {
+        Integer index = indexByVertex.get(vertex);
+        return index != null && vertices.get(index) == vertex ? index : -1;
     }
 
     /**
@@ -116,5 +291,8 @@ public class Graph implements IGraph {
         return sb.toString();
     }
 
-}
+    private static long edgeKey(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
 
+}
@@ -0,0 +1,351 @@
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Генератор больших ациклических графов в JSON-формате .graph,
+ * который принимает GraphParser.
+ *
+ * Вершины и рёбра пишутся потоком, без хранения графа в памяти:
+ * память зависит только от максимальной степени вершины и числа
+ * вносимых циклов, но не от количества рёбер.
+ * Вывод детерминирован: одинаковые параметры и seed дают одинаковый файл.
+ *
+ * Модели:
+ * <ul>
+ *     <li>layered - слои одинаковой ширины, рёбра только в следующий слой</li>
+ *     <li>er - случайный граф Эрдёша-Реньи на случайной перестановке вершин</li>
+ *     <li>powerlaw - степени исхода по степенному закону (хабы с большим числом рёбер)</li>
+ *     <li>chain - несколько длинных независимых цепочек</li>
+ * </ul>
+ */
+public final class GraphGenerator {
+    private static final int SPACING = 60;
+    private static final double POWER_LAW_EXPONENT = 2.5;
+
+    private final String model;
+    private final int vertexCount;
+    private final double degree;
+    private final int layers;
+    private final int chains;
+    private final int cycles;
+    private final int maxDegree;
+    private final Random random;
+
+    // Выборка рёбер для внесения циклов (reservoir sampling).
+    // Отдельный генератор, чтобы сам ациклический граф не зависел от числа циклов
+    private final Random cycleRandom;
+    private final int[] sampleSources;
+    private final int[] sampleTargets;
+    private long edgesWritten;
+
+    /**
+     * @param model модель графа: layered, er, powerlaw или chain
+     * @param vertexCount количество вершин
+     * @param degree средняя степень исхода (для layered, er, powerlaw)
+     * @param layers количество слоёв для layered (0 - корень из числа вершин)
+     * @param chains количество цепочек для chain
+     * @param cycles сколько циклов внести в граф
+     * @param maxDegree ограничение степени исхода для powerlaw
+     * @param seed зерно генератора случайных чисел
+     */
+    public GraphGenerator(String model, int vertexCount, double degree, int layers,
+                          int chains, int cycles, int maxDegree, long seed) {
+        if (vertexCount < 1) {
+            throw new IllegalArgumentException("Количество вершин должно быть положительным");
+        }
+        this.model = model;
+        this.vertexCount = vertexCount;
+        this.degree = degree;
+        this.layers = layers > 0 ? Math.min(layers, vertexCount) : Math.max(1, (int) Math.sqrt(vertexCount));
+        this.chains = Math.max(1, Math.min(chains, vertexCount));
+        this.cycles = cycles;
+        this.maxDegree = maxDegree;
+        this.random = new Random(seed);
+        this.cycleRandom = new Random(~seed);
+        this.sampleSources = new int[cycles];
+        this.sampleTargets = new int[cycles];
+    }
+
+    /**
+     * Записывает граф в поток
+     *
+     * @param writer приёмник JSON
+     * @throws IOException при ошибке записи
+     */
+    public void write(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+
+        Permutation order = model.equals("er") ? Permutation.random(vertexCount, random) : Permutation.identity();
+        json.name("vertices").beginArray();
+        for (int v = 0; v < vertexCount; v++) {
+            int position = order.inverse(v);
+            json.beginObject();
+            json.name("x").value(x(position));
+            json.name("y").value(y(position));
+            json.name("name").value("v" + v);
+            json.endObject();
+        }
+        json.endArray();
+
+        json.name("edges").beginArray();
+        switch (model) {
+            case "layered" -> writeLayered(json);
+            case "er" -> writeErdosRenyi(json, order);
+            case "powerlaw" -> writePowerLaw(json);
+            case "chain" -> writeChains(json);
+            default -> throw new IllegalArgumentException("Неизвестная модель графа: " + model);
+        }
+        writeCycles(json);
+        json.endArray();
+
+        json.endObject();
+        json.flush();
+    }
+
+    private void writeLayered(JsonWriter json) throws IOException {
+        int width = layerWidth();
+        int k = (int) Math.min(Math.round(degree), width);
+        for (int v = 0; v < vertexCount; v++) {
+            int nextLayer = (v / width + 1) * width;
+            if (nextLayer >= vertexCount) {
+                break;
+            }
+            int nextWidth = Math.min(width, vertexCount - nextLayer);
+            writeDistinctTargets(json, v, nextLayer, nextWidth, Math.min(k, nextWidth));
+        }
+    }
+
+    // Алгоритм Батагели-Брандеса: пропуски между рёбрами имеют геометрическое распределение
+    private void writeErdosRenyi(JsonWriter json, Permutation order) throws IOException {
+        double pairs = (double) vertexCount * (vertexCount - 1) / 2;
+        double p = Math.min(1.0, degree * vertexCount / Math.max(1.0, pairs));
+        if (p <= 0) {
+            return;
+        }
+
+        long from = -1;
+        long to = 1;
+        double logQ = Math.log(1 - p);
+        while (to < vertexCount) {
+            long skip = p >= 1 ? 0 : (long) Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+            from += 1 + skip;
+            while (from >= to && to < vertexCount) {
+                from -= to;
+                to++;
+            }
+            if (to < vertexCount) {
+                writeEdge(json, order.apply((int) from), order.apply((int) to));
+            }
+        }
+    }
+
+    // Степень исхода - дискретное распределение Парето со средним degree
+    private void writePowerLaw(JsonWriter json) throws IOException {
+        double alpha = POWER_LAW_EXPONENT - 1;
+        double scale = degree * (alpha - 1) / alpha;
+        for (int v = 0; v < vertexCount - 1; v++) {
+            int remaining = vertexCount - 1 - v;
+            double sample = scale * Math.pow(1 - random.nextDouble(), -1 / alpha);
+            int count = (int) Math.min(Math.min(sample, maxDegree), remaining);
+            writeDistinctTargets(json, v, v + 1, remaining, count);
+        }
+    }
+
+    private void writeChains(JsonWriter json) throws IOException {
+        int length = (vertexCount + chains - 1) / chains;
+        for (int v = 0; v < vertexCount - 1; v++) {
+            if ((v + 1) % length != 0) {
+                writeEdge(json, v, v + 1);
+            }
+        }
+    }
+
+    // Выбирает count разных концов из отрезка [first, first + range)
+    private void writeDistinctTargets(JsonWriter json, int source, int first, int range, int count)
+            throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        if ((long) count * 4 <= range) {
+            LongHashSet chosen = new LongHashSet(count);
+            for (int written = 0; written < count; ) {
+                int target = first + random.nextInt(range);
+                if (chosen.add(target)) {
+                    writeEdge(json, source, target);
+                    written++;
+                }
+            }
+            return;
+        }
+        // Плотный случай: последовательная выборка (алгоритм S Кнута) без доп. памяти
+        int needed = count;
+        for (int i = 0; i < range && needed > 0; i++) {
+            if (random.nextInt(range - i) < needed) {
+                writeEdge(json, source, first + i);
+                needed--;
+            }
+        }
+    }
+
+    // Для каждого выбранного ребра s -> t добавляет обратное ребро t -> s
+    private void writeCycles(JsonWriter json) throws IOException {
+        int injected = (int) Math.min(cycles, edgesWritten);
+        for (int i = 0; i < injected; i++) {
+            writeEdgeJson(json, sampleTargets[i], sampleSources[i]);
+        }
+    }
+
+    private void writeEdge(JsonWriter json, int source, int target) throws IOException {
+        if (edgesWritten < cycles) {
+            sampleSources[(int) edgesWritten] = source;
+            sampleTargets[(int) edgesWritten] = target;
+        } else if (cycles > 0) {
+            long slot = (long) (cycleRandom.nextDouble() * (edgesWritten + 1));
+            if (slot < cycles) {
+                sampleSources[(int) slot] = source;
+                sampleTargets[(int) slot] = target;
+            }
+        }
+        edgesWritten++;
+        writeEdgeJson(json, source, target);
+    }
+
+    private static void writeEdgeJson(JsonWriter json, int source, int target) throws IOException {
+        json.beginObject();
+        json.name("vertex1").value(source);
+        json.name("vertex2").value(target);
+        json.name("isDirected").value(true);
+        json.endObject();
+    }
+
+    private int layerWidth() {
+        return (vertexCount + layers - 1) / layers;
+    }
+
+    // Раскладка по позиции вершины в топологическом порядке
+    private int x(int position) {
+        return switch (model) {
+            case "layered" -> (position % layerWidth()) * SPACING;
+            case "chain" -> (position / chainLength()) * SPACING;
+            default -> (position % gridColumns()) * SPACING;
+        };
+    }
+
+    private int y(int position) {
+        return switch (model) {
+            case "layered" -> (position / layerWidth()) * SPACING;
+            case "chain" -> (position % chainLength()) * SPACING;
+            default -> (position / gridColumns()) * SPACING;
+        };
+    }
+
+    private int chainLength() {
+        return (vertexCount + chains - 1) / chains;
+    }
+
+    private int gridColumns() {
+        return Math.max(1, (int) Math.ceil(Math.sqrt(vertexCount)));
+    }
+
+    /**
+     * Перестановка позиций вершин вида p -> (a * p + b) mod n.
+     * Задаётся двумя числами, поэтому не требует памяти под массив.
+     */
+    private static final class Permutation {
+        private final long n;
+        private final long a;
+        private final long b;
+        private final long aInverse;
+
+        private Permutation(long n, long a, long b) {
+            this.n = n;
+            this.a = a;
+            this.b = b;
+            this.aInverse = n > 1 ? BigInteger.valueOf(a).modInverse(BigInteger.valueOf(n)).longValue() : 0;
+        }
+
+        static Permutation identity() {
+            return new Permutation(1, 1, 0);
+        }
+
+        static Permutation random(int n, Random random) {
+            if (n < 2) {
+                return identity();
+            }
+            long a;
+            do {
+                a = 1 + (long) (random.nextDouble() * (n - 1));
+            } while (BigInteger.valueOf(a).gcd(BigInteger.valueOf(n)).intValue() != 1);
+            return new Permutation(n, a, (long) (random.nextDouble() * n));
+        }
+
+        int apply(int position) {
+            return n == 1 ? position : (int) ((a * position + b) % n);
+        }
+
+        int inverse(int vertex) {
+            return n == 1 ? vertex : (int) (((vertex - b) % n + n) % n * aInverse % n);
+        }
+    }
+
+    /**
+     * Генерация из командной строки.
+     * Пример: GraphGenerator --model layered --vertices 1000000 --degree 4 --seed 1 --out big.graph.gz
+     *
+     * @param args параметры генерации
+     */
+    public static void main(String[] args) throws IOException {
+        String model = "layered";
+        int vertices = 1000;
+        double degree = 3;
+        int layers = 0;
+        int chains = 1;
+        int cycles = 0;
+        int maxDegree = 10_000;
+        long seed = 1;
+        String out = "-";
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--model" -> model = value;
+                case "--vertices" -> vertices = Integer.parseInt(value);
+                case "--degree" -> degree = Double.parseDouble(value);
+                case "--layers" -> layers = Integer.parseInt(value);
+                case "--chains" -> chains = Integer.parseInt(value);
+                case "--cycles" -> cycles = Integer.parseInt(value);
+                case "--max-degree" -> maxDegree = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--out" -> out = value;
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.err.println("Usage: GraphGenerator [--model layered|er|powerlaw|chain] [--vertices N]"
+                        + " [--degree D] [--layers L] [--chains C] [--cycles K] [--max-degree M]"
+                        + " [--seed S] [--out file.graph[.gz] | -]");
+                    System.exit(2);
+                }
+            }
+            i++;
+        }
+
+        GraphGenerator generator = new GraphGenerator(model, vertices, degree, layers, chains, cycles, maxDegree, seed);
+        OutputStream stream = out.equals("-") ? System.out : Files.newOutputStream(Path.of(out));
+        if (out.endsWith(".gz")) {
+            stream = new GZIPOutputStream(stream, 1 << 16);
+        }
+        try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(stream, 1 << 16), StandardCharsets.UTF_8)) {
+            generator.write(writer);
+        }
+    }
+}
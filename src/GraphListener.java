@@ -0,0 +1,38 @@
+/**
+ * Наблюдатель за изменениями графа.
+ * Вершины и рёбра передаются индексами вершин в графе.
+ */
+public interface GraphListener {
+
+    /**
+     * Вызывается после добавления вершины
+     *
+     * @param vertex индекс новой вершины
+     */
+    default void vertexAdded(int vertex) {}
+
+    /**
+     * Вызывается перед добавлением ребра. Выброшенное исключение
+     * отменяет добавление ребра.
+     *
+     * @param source индекс начальной вершины
+     * @param target индекс конечной вершины
+     */
+    default void beforeEdgeAdded(int source, int target) {}
+
+    /**
+     * Вызывается после добавления ребра
+     *
+     * @param source индекс начальной вершины
+     * @param target индекс конечной вершины
+     */
+    default void edgeAdded(int source, int target) {}
+
+    /**
+     * Вызывается после удаления ребра
+     *
+     * @param source индекс начальной вершины
+     * @param target индекс конечной вершины
+     */
+    default void edgeRemoved(int source, int target) {}
+}
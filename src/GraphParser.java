@@ -1,101 +1,321 @@
-import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
 
+/**
+ * Потоковый парсер графа из JSON-формата .graph.
+ * Файл читается по токенам: вершины складываются в VertexStore, рёбра -
+ * в примитивные буферы по мере чтения, неизвестные поля пропускаются,
+ * промежуточное дерево объектов не строится. Массив edges может идти до массива vertices.
+ * Необязательное поле weight вершины и ребра задаёт их вес (например,
+ * длительность работы и задержку между работами).
+ */
 public final class GraphParser {
+    private static final int GZIP_MAGIC = 0x8b1f;
+    // Как часто (в байтах файла) сообщать о прогрессе чтения
+    private static final long PROGRESS_STEP = 1 << 20;
 
     // Приватный конструктор - утилитарный класс
     private GraphParser() {}
 
     /**
-     * Парсит граф из JSON-файла
-     * 
+     * Парсит граф из JSON-файла.
+     * Файлы, сжатые gzip, распознаются по сигнатуре и распаковываются на лету.
+     *
      * @param filePath путь к JSON-файлу
      * @return объект Graph
      * @throws Exception при ошибках чтения/парсинга
      */
     public static Graph parseFromFile(Path filePath) throws Exception {
-        try (Reader reader = Files.newBufferedReader(filePath)) {
+        try (Reader reader = openReader(filePath, null)) {
             return parse(reader);
         }
     }
 
     /**
      * Парсит граф из Reader
-     * 
+     *
      * @param reader источник JSON-данных
      * @return объект Graph
      * @throws JsonSyntaxException при ошибке синтаксиса JSON
      * @throws IllegalArgumentException при невалидных данных
      */
     public static Graph parse(Reader reader) {
-        Gson gson = new Gson();
-        GraphJsonData graphData = gson.fromJson(reader, GraphJsonData.class);
-
-        // Валидация структуры JSON
-        validateGraphData(graphData);
+        RawGraph raw = measuredRead(reader);
 
         // Создаем вершины
-        List<Vertex> vertices = createVertices(graphData.vertices);
+        VertexStore store = raw.vertices;
+        List<Vertex> vertices = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) {
+            vertices.add(new Vertex(store.name(i), store.x(i), store.y(i), store.weight(i)));
+        }
         Graph graph = new Graph(vertices);
 
         // Добавляем ребра
-        addEdges(graph, vertices, graphData.edges);
+        graph.addEdges(Arrays.copyOf(raw.sources, raw.edgeCount), Arrays.copyOf(raw.targets, raw.edgeCount),
+                       raw.edgeWeights != null ? Arrays.copyOf(raw.edgeWeights, raw.edgeCount) : null);
 
         return graph;
     }
 
-    private static void validateGraphData(GraphJsonData graphData) {
-        if (graphData.vertices == null) {
-            throw new IllegalArgumentException("Отсутствует массив vertices в JSON");
+    /**
+     * Парсит граф из JSON-файла сразу в компактное CSR-представление
+     *
+     * @param filePath путь к JSON-файлу
+     * @return объект CsrGraph
+     * @throws Exception при ошибках чтения/парсинга
+     */
+    public static CsrGraph parseCsrFromFile(Path filePath) throws Exception {
+        try (Reader reader = openReader(filePath, null)) {
+            return parseCsr(reader);
+        }
+    }
+
+    /**
+     * Парсит граф из JSON-файла в CSR-представление, сообщая о прогрессе.
+     * Прогресс - число прочитанных байт файла (для gzip - сжатых байт),
+     * его можно сравнивать с размером файла. Если поток, выполняющий разбор,
+     * прерван, чтение останавливается с InterruptedIOException внутри JsonIOException.
+     *
+     * @param filePath путь к JSON-файлу
+     * @param progress получатель числа прочитанных байт
+     * @return объект CsrGraph
+     * @throws Exception при ошибках чтения/парсинга или прерывании
+     */
+    public static CsrGraph parseCsrFromFile(Path filePath, LongConsumer progress) throws Exception {
+        try (Reader reader = openReader(filePath, progress)) {
+            return parseCsr(reader);
+        }
+    }
+
+    /**
+     * Парсит граф из Reader сразу в компактное CSR-представление,
+     * не создавая объектов Vertex и строк имён: граф читает вершины
+     * из таблицы VertexStore, заполненной при разборе
+     *
+     * @param reader источник JSON-данных
+     * @return объект CsrGraph
+     * @throws JsonSyntaxException при ошибке синтаксиса JSON
+     * @throws IllegalArgumentException при невалидных данных
+     */
+    public static CsrGraph parseCsr(Reader reader) {
+        RawGraph raw = measuredRead(reader);
+        raw.vertices.trimToSize();
+        return CsrGraph.fromEdges(raw.vertices, raw.sources, raw.targets, raw.edgeWeights, raw.edgeCount);
+    }
+
+    private static Reader openReader(Path filePath, LongConsumer progress) throws IOException {
+        InputStream file = Files.newInputStream(filePath);
+        if (progress != null) {
+            file = new ProgressInputStream(file, progress);
+        }
+        InputStream in = new BufferedInputStream(file, 1 << 16);
+        try {
+            in.mark(2);
+            int magic = in.read() | (in.read() << 8);
+            in.reset();
+            if (magic == GZIP_MAGIC) {
+                in = new GZIPInputStream(in, 1 << 16);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    // Символы считаются, только если замеры включены
+    private static RawGraph measuredRead(Reader reader) {
+        Metrics metrics = Metrics.get();
+        if (!metrics.isEnabled()) {
+            return read(reader);
+        }
+        CountingReader counting = new CountingReader(reader);
+        long start = System.nanoTime();
+        RawGraph raw = read(counting);
+        metrics.graphParsed(counting.chars, System.nanoTime() - start, raw.vertices.size(), raw.edgeCount);
+        return raw;
+    }
+
+    private static RawGraph read(Reader reader) {
+        JsonReader in = new JsonReader(reader);
+        in.setStrictness(Strictness.LENIENT);
+        RawGraph raw = new RawGraph();
+        try {
+            readGraph(in, raw);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+
+        // Валидация структуры JSON
+        validateGraphData(raw);
+        validateEdges(raw);
+        return raw;
+    }
+
+    private static void readGraph(JsonReader in, RawGraph raw) throws IOException {
+        try {
+            in.peek();
+        } catch (EOFException e) {
+            return; // Пустой документ - vertices отсутствует
+        }
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "vertices" -> readVertices(in, raw);
+                case "edges" -> readEdges(in, raw);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static void readVertices(JsonReader in, RawGraph raw) throws IOException {
+        raw.hasVertices = true;
+        raw.vertices.clear();
+        in.beginArray();
+        while (in.hasNext()) {
+            int x = 0;
+            int y = 0;
+            String name = null;
+            double weight = Vertex.DEFAULT_WEIGHT;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "x" -> x = in.nextInt();
+                    case "y" -> y = in.nextInt();
+                    case "name" -> name = nextNullableString(in);
+                    case "weight" -> weight = nextWeight(in, Vertex.DEFAULT_WEIGHT);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            validateVertexData(name, raw.vertices.size());
+            validateWeight(weight, "вершины", raw.vertices.size());
+            raw.vertices.add(name, x, y, weight);
+        }
+        in.endArray();
+    }
+
+    private static void readEdges(JsonReader in, RawGraph raw) throws IOException {
+        raw.edgeCount = 0;
+        raw.firstUndirected = -1;
+        in.beginArray();
+        while (in.hasNext()) {
+            int vertex1 = 0;
+            int vertex2 = 0;
+            boolean isDirected = false;
+            double weight = Vertex.DEFAULT_EDGE_WEIGHT;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "vertex1" -> vertex1 = in.nextInt();
+                    case "vertex2" -> vertex2 = in.nextInt();
+                    case "isDirected" -> isDirected = in.nextBoolean();
+                    case "weight" -> weight = nextWeight(in, Vertex.DEFAULT_EDGE_WEIGHT);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (!isDirected && raw.firstUndirected < 0) {
+                raw.firstUndirected = raw.edgeCount;
+            }
+            validateWeight(weight, "ребра", raw.edgeCount);
+            raw.addEdge(vertex1, vertex2, weight);
+        }
+        in.endArray();
+    }
+
+    // Редактор графов пишет у рёбер без веса "weight": "", поэтому пустая строка
+    // и null означают вес по умолчанию, а число может быть записано строкой
+    private static double nextWeight(JsonReader in, double defaultWeight) throws IOException {
+        String value = nextNullableString(in);
+        if (value == null || value.isBlank()) {
+            return defaultWeight;
         }
-        if (graphData.edges == null) {
-            graphData.edges = new ArrayList<>(); // Разрешаем пустые графы
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Вес должен быть числом: \"" + value + "\"");
         }
     }
 
-    private static List<Vertex> createVertices(List<VertexJsonData> verticesData) {
-        List<Vertex> vertices = new ArrayList<>(verticesData.size());
-        for (int i = 0; i < verticesData.size(); i++) {
-            VertexJsonData vData = verticesData.get(i);
-            validateVertexData(vData, i);
-            vertices.add(new Vertex(vData.name, vData.x, vData.y));
+    private static String nextNullableString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
         }
-        return vertices;
+        return in.nextString();
     }
 
-    private static void validateVertexData(VertexJsonData vData, int index) {
-        if (vData.name == null || vData.name.isEmpty()) {
+    private static void validateGraphData(RawGraph raw) {
+        if (!raw.hasVertices) {
+            throw new IllegalArgumentException("Отсутствует массив vertices в JSON");
+        }
+    }
+
+    private static void validateVertexData(String name, int index) {
+        if (name == null || name.isEmpty()) {
             throw new IllegalArgumentException(
                 "Вершина #" + index + " имеет пустое имя"
             );
         }
     }
 
-    private static void addEdges(Graph graph, List<Vertex> vertices, List<EdgeJsonData> edgesData) {
-        for (int i = 0; i < edgesData.size(); i++) {
-            EdgeJsonData eData = edgesData.get(i);
-            validateEdgeData(eData, i, vertices.size());
-            
-            Vertex source = vertices.get(eData.vertex1);
-            Vertex target = vertices.get(eData.vertex2);
-            graph.addEdge(source, target);
+    private static void validateWeight(double weight, String owner, int index) {
+        if (!Double.isFinite(weight)) {
+            throw new IllegalArgumentException(
+                "Вес " + owner + " #" + index + " должен быть конечным числом: " + weight
+            );
+        }
+    }
+
+    // Рёбра проверяются после чтения, когда известно число вершин
+    private static void validateEdges(RawGraph raw) {
+        for (int i = 0; i < raw.edgeCount; i++) {
+            validateEdgeData(raw.sources[i], raw.targets[i], i != raw.firstUndirected, i, raw.vertices.size());
         }
     }
 
-    private static void validateEdgeData(EdgeJsonData eData, int index, int vertexCount) {
-        
-        if (!eData.isDirected) {
+    private static void validateEdgeData(int vertex1, int vertex2, boolean isDirected, int index, int vertexCount) {
+
+        if (!isDirected) {
             throw new IllegalArgumentException(
                 "Топологическая сортировка требует ориентированный граф (ребро #" + index + ")"
             );
         }
-        validateVertexIndex(eData.vertex1, index, vertexCount, "vertex1");
-        validateVertexIndex(eData.vertex2, index, vertexCount, "vertex2");
+        validateVertexIndex(vertex1, index, vertexCount, "vertex1");
+        validateVertexIndex(vertex2, index, vertexCount, "vertex2");
     }
 
     private static void validateVertexIndex(int index, int edgeIndex, int max, String field) {
@@ -107,21 +327,109 @@ public final class GraphParser {
         }
     }
 
-    // Внутренние классы для структуры JSON
-    private static class GraphJsonData {
-        List<VertexJsonData> vertices;
-        List<EdgeJsonData> edges;
+    // Прочитанный граф: вершины в компактной таблице, рёбра в примитивных буферах;
+    // массив весов рёбер создаётся при первом весе, отличном от значения по умолчанию
+    private static class RawGraph {
+        boolean hasVertices;
+        final VertexStore vertices = new VertexStore();
+
+        int edgeCount;
+        int firstUndirected = -1;
+        int[] sources = new int[16];
+        int[] targets = new int[16];
+        double[] edgeWeights;
+
+        void addEdge(int source, int target, double weight) {
+            if (edgeCount == sources.length) {
+                int capacity = sources.length << 1;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                if (edgeWeights != null) {
+                    edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+                }
+            }
+            if (edgeWeights == null && weight != Vertex.DEFAULT_EDGE_WEIGHT) {
+                edgeWeights = new double[sources.length];
+                Arrays.fill(edgeWeights, 0, edgeCount, Vertex.DEFAULT_EDGE_WEIGHT);
+            }
+            sources[edgeCount] = source;
+            targets[edgeCount] = target;
+            if (edgeWeights != null) {
+                edgeWeights[edgeCount] = weight;
+            }
+            edgeCount++;
+        }
     }
 
-    private static class VertexJsonData {
-        int x;
-        int y;
-        String name;
+    // Считает прочитанные символы для замеров
+    private static final class CountingReader extends FilterReader {
+        private long chars;
+
+        CountingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                chars++;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                chars += n;
+            }
+            return n;
+        }
     }
 
-    private static class EdgeJsonData {
-        int vertex1;
-        int vertex2;
-        boolean isDirected;
+    // Считает прочитанные байты и проверяет прерывание потока
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final LongConsumer progress;
+        private long bytesRead;
+        private long reported;
+
+        ProgressInputStream(InputStream in, LongConsumer progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            count(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            count(n);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            progress.accept(bytesRead);
+        }
+
+        private void count(int n) throws IOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Чтение графа прервано");
+            }
+            if (n > 0) {
+                bytesRead += n;
+            }
+            if (n < 0 || bytesRead - reported >= PROGRESS_STEP) {
+                reported = bytesRead;
+                progress.accept(bytesRead);
+            }
+        }
     }
-}
\ No newline at end of file
+}
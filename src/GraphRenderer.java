@@ -0,0 +1,595 @@
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import java.util.Arrays;
+
+/**
+ * Отрисовка графа на Canvas в немедленном режиме.
+ * Вместо отдельного узла сцены на каждую вершину и ребро граф рисуется
+ * несколькими пакетными путями: все рёбра - одним штрихом, все стрелки - одной заливкой.
+ * Цвет вершины задаётся состоянием в массиве byte; при смене состояния
+ * перерисовывается только прямоугольник вокруг вершины. Изменения,
+ * сделанные за один проход FX-потока, объединяются в одну перерисовку.
+ *
+ * Рисуется только то, что попадает в окно просмотра (выборка через SpatialIndex).
+ * При отдалении включаются упрощения: подписи скрываются, вершины уменьшаются,
+ * а при большом числе видимых элементов вершины и рёбра сливаются в точки
+ * и отрезки по экранной сетке. Колесо мыши масштабирует, перетаскивание сдвигает вид.
+ *
+ * Поверх состояний можно выделить путь (например, критический): его рёбра
+ * рисуются отдельным штрихом, а вершины - цветным контуром.
+ */
+public final class GraphRenderer {
+    public static final byte DEFAULT = 0;
+    public static final byte SORTED = 1;
+    public static final byte BLOCKED = 2;
+
+    private static final Color[] PALETTE = { Color.LIGHTGRAY, Color.GREEN, Color.SALMON };
+    private static final Color AGGREGATED_EDGE = Color.gray(0.3, 0.5);
+    private static final Color HIGHLIGHT = Color.CRIMSON;
+    private static final double HIGHLIGHT_STROKE = 4;
+
+    private static final double VERTEX_RADIUS = 20;
+    private static final double VERTEX_STROKE = 2;
+    private static final double EDGE_STROKE = 2;
+    private static final double ARROW_LENGTH = 12;
+    // Угол стрелки 30 градусов: синус и косинус считаются один раз
+    private static final double ARROW_COS = Math.cos(Math.toRadians(30));
+    private static final double ARROW_SIN = Math.sin(Math.toRadians(30));
+    private static final Font LABEL_FONT = Font.font(null, FontWeight.BOLD, 12);
+
+    // Уровни детализации: радиус вершины на экране, ниже которого пропадают подписи и контуры
+    private static final double MIN_RADIUS = 1.5;
+    private static final double LABEL_MIN_RADIUS = 10;
+    private static final double OUTLINE_MIN_RADIUS = 4;
+    // Сколько видимых элементов рисуется по отдельности, дальше - слияние по экранной сетке
+    private static final int AGGREGATE_THRESHOLD = 20_000;
+    private static final int AGGREGATE_CELL = 3;
+    // Экранная ячейка упаковывается в int: по 16 бит на строку и столбец со смещением
+    private static final int CELL_BIAS = 1 << 15;
+
+    private static final double ZOOM_STEP = 1.1;
+    private static final double MIN_SCALE = 1e-4;
+    private static final double MAX_SCALE = 50;
+
+    // При большом числе изменений дешевле перерисовать всё целиком
+    private static final int MAX_DIRTY_REGIONS = 32;
+
+    private final Canvas canvas = new Canvas();
+    private final GraphicsContext gc = canvas.getGraphicsContext2D();
+    private final Tooltip tooltip = new Tooltip();
+
+    private CsrGraph graph;
+    private SpatialIndex index;
+    private byte[] state = new byte[0];
+    private double scale = 1.0;
+    private double offsetX = 0;
+    private double offsetY = 0;
+    private boolean aggregated;
+
+    // Выделенный путь: вершины по порядку, их флаги и множество рёбер пути
+    private int[] highlightedPath;
+    private boolean[] highlighted;
+    private LongHashSet highlightedEdges;
+
+    private int[] dirty = new int[MAX_DIRTY_REGIONS];
+    private int dirtyCount;
+    private boolean fullRedraw;
+    private boolean flushScheduled;
+
+    // Буферы видимых элементов, переиспользуются между кадрами
+    private int[] visibleVertices = new int[256];
+    private int visibleVertexCount;
+    private int[] visibleEdges = new int[512];
+    private int visibleEdgeCount;
+
+    private double dragX;
+    private double dragY;
+    private int hovered = -1;
+
+    /**
+     * Создает отрисовщик, занимающий всю площадь контейнера
+     *
+     * @param host контейнер для холста
+     */
+    public GraphRenderer(Pane host) {
+        canvas.widthProperty().bind(host.widthProperty());
+        canvas.heightProperty().bind(host.heightProperty());
+        canvas.widthProperty().addListener((obs, was, now) -> requestRedraw());
+        canvas.heightProperty().addListener((obs, was, now) -> requestRedraw());
+        // Холст не участвует в расчёте размеров контейнера, а только следует за ними
+        canvas.setManaged(false);
+        host.getChildren().setAll(canvas);
+
+        canvas.setOnMousePressed(this::onMousePressed);
+        canvas.setOnMouseDragged(this::onMouseDragged);
+        canvas.setOnMouseMoved(this::onMouseMoved);
+        canvas.setOnMouseExited(event -> hideTooltip());
+        canvas.setOnScroll(this::onScroll);
+    }
+
+    /**
+     * Задаёт граф для отображения, строит пространственный индекс,
+     * сбрасывает состояния вершин и масштаб
+     *
+     * @param graph граф
+     */
+    public void setGraph(CsrGraph graph) {
+        setGraph(graph, new SpatialIndex(graph));
+    }
+
+    /**
+     * Задаёт граф с заранее построенным индексом (например, в фоновом потоке)
+     *
+     * @param graph граф
+     * @param index пространственный индекс этого графа
+     */
+    public void setGraph(CsrGraph graph, SpatialIndex index) {
+        this.graph = graph;
+        this.index = index;
+        this.state = new byte[graph.vertexCount()];
+        this.highlightedPath = null;
+        this.highlighted = null;
+        this.highlightedEdges = null;
+        hideTooltip();
+        fitToView();
+        redraw();
+    }
+
+    /**
+     * Меняет состояние (цвет) вершины.
+     * Перерисовка откладывается до конца текущего прохода FX-потока.
+     *
+     * @param v индекс вершины
+     * @param newState DEFAULT, SORTED или BLOCKED
+     */
+    public void setState(int v, byte newState) {
+        if (state[v] == newState) {
+            return;
+        }
+        state[v] = newState;
+        if (!fullRedraw) {
+            if (aggregated || dirtyCount == dirty.length) {
+                fullRedraw = true;
+            } else {
+                dirty[dirtyCount++] = v;
+            }
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Возвращает все вершины в исходное состояние
+     */
+    public void resetStates() {
+        Arrays.fill(state, DEFAULT);
+        requestRedraw();
+    }
+
+    /**
+     * Выделяет путь поверх состояний вершин
+     *
+     * @param path индексы вершин пути по порядку или null, чтобы снять выделение
+     */
+    public void setHighlightedPath(int[] path) {
+        if (path == null || graph == null) {
+            highlightedPath = null;
+            highlighted = null;
+            highlightedEdges = null;
+        } else {
+            highlightedPath = path.clone();
+            highlighted = new boolean[graph.vertexCount()];
+            highlightedEdges = new LongHashSet(path.length);
+            for (int i = 0; i < path.length; i++) {
+                highlighted[path[i]] = true;
+                if (i > 0) {
+                    highlightedEdges.add(edgeKey(path[i - 1], path[i]));
+                }
+            }
+        }
+        requestRedraw();
+    }
+
+    /**
+     * @return true, если какой-то путь выделен
+     */
+    public boolean hasHighlightedPath() {
+        return highlightedPath != null;
+    }
+
+    /**
+     * Вписывает весь граф в окно просмотра
+     */
+    public void fitToView() {
+        if (graph == null || graph.vertexCount() == 0) {
+            return;
+        }
+
+        double graphWidth = index.maxX() - index.minX();
+        double graphHeight = index.maxY() - index.minY();
+        double canvasWidth = canvas.getWidth();
+        double canvasHeight = canvas.getHeight();
+
+        double paddingFactor = 0.2;
+        double scaleX = (canvasWidth > 0 && graphWidth > 0)
+                ? (canvasWidth * (1 - paddingFactor)) / graphWidth : 1;
+        double scaleY = (canvasHeight > 0 && graphHeight > 0)
+                ? (canvasHeight * (1 - paddingFactor)) / graphHeight : 1;
+
+        scale = Math.min(scaleX, scaleY) * 0.95;
+        offsetX = (canvasWidth - graphWidth * scale) / 2 - index.minX() * scale;
+        offsetY = (canvasHeight - graphHeight * scale) / 2 - index.minY() * scale;
+        requestRedraw();
+    }
+
+    /**
+     * Ищет вершину под точкой холста через пространственный индекс
+     *
+     * @param screenX координата X на холсте
+     * @param screenY координата Y на холсте
+     * @return индекс вершины или -1, если в точке нет вершины
+     */
+    public int vertexAt(double screenX, double screenY) {
+        if (graph == null) {
+            return -1;
+        }
+        return index.nearestVertex(worldX(screenX), worldY(screenY), vertexRadius() / scale);
+    }
+
+    /**
+     * Полностью перерисовывает видимую часть графа
+     */
+    public void redraw() {
+        long start = System.nanoTime();
+        dirtyCount = 0;
+        fullRedraw = false;
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (graph == null) {
+            return;
+        }
+
+        double margin = vertexRadius() + VERTEX_STROKE;
+        collectVisible(-margin, -margin, canvas.getWidth() + margin, canvas.getHeight() + margin);
+        aggregated = visibleVertexCount > AGGREGATE_THRESHOLD || visibleEdgeCount > AGGREGATE_THRESHOLD;
+        if (visibleEdgeCount > AGGREGATE_THRESHOLD) {
+            drawAggregatedEdges();
+        } else {
+            drawEdges();
+        }
+        if (visibleVertexCount > AGGREGATE_THRESHOLD) {
+            drawAggregatedVertices();
+        } else {
+            drawVertices();
+        }
+        if (aggregated && highlightedPath != null) {
+            drawAggregatedHighlight();
+        }
+        Metrics.get().graphRendered(visibleVertexCount, visibleEdgeCount, aggregated, System.nanoTime() - start);
+    }
+
+    private void requestRedraw() {
+        fullRedraw = true;
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            Platform.runLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (fullRedraw) {
+            redraw();
+            return;
+        }
+        double margin = vertexRadius() + VERTEX_STROKE;
+        for (int i = 0; i < dirtyCount; i++) {
+            int v = dirty[i];
+            double x = transformX(graph.x(v)) - margin;
+            double y = transformY(graph.y(v)) - margin;
+            double size = 2 * margin;
+            gc.save();
+            gc.beginPath();
+            gc.rect(x, y, size, size);
+            gc.clip();
+            gc.clearRect(x, y, size, size);
+            collectVisible(x - margin, y - margin, x + size + margin, y + size + margin);
+            drawEdges();
+            drawVertices();
+            gc.restore();
+        }
+        dirtyCount = 0;
+    }
+
+    // Выбирает из индекса вершины и рёбра, попадающие в прямоугольник холста
+    private void collectVisible(double x0, double y0, double x1, double y1) {
+        double wx0 = worldX(x0), wy0 = worldY(y0);
+        double wx1 = worldX(x1), wy1 = worldY(y1);
+        visibleVertexCount = 0;
+        visibleEdgeCount = 0;
+        index.forEachVertex(wx0, wy0, wx1, wy1, v -> {
+            if (visibleVertexCount == visibleVertices.length) {
+                visibleVertices = Arrays.copyOf(visibleVertices, visibleVertexCount << 1);
+            }
+            visibleVertices[visibleVertexCount++] = v;
+        });
+        index.forEachEdge(wx0, wy0, wx1, wy1, (s, t) -> {
+            if (visibleEdgeCount + 2 > visibleEdges.length) {
+                visibleEdges = Arrays.copyOf(visibleEdges, visibleEdges.length << 1);
+            }
+            visibleEdges[visibleEdgeCount++] = s;
+            visibleEdges[visibleEdgeCount++] = t;
+        });
+        visibleEdgeCount >>= 1;
+    }
+
+    private void drawEdges() {
+        double radius = vertexRadius();
+        boolean arrows = radius >= OUTLINE_MIN_RADIUS;
+        gc.setStroke(Color.BLACK);
+        gc.setFill(Color.BLACK);
+        gc.setLineWidth(arrows ? EDGE_STROKE : 1);
+        gc.beginPath();
+        int highlightedCount = 0;
+        for (int i = 0; i < visibleEdgeCount; i++) {
+            int s = visibleEdges[2 * i];
+            int t = visibleEdges[2 * i + 1];
+            if (highlightedEdges != null && highlightedEdges.contains(edgeKey(s, t))) {
+                highlightedCount++;
+                continue;
+            }
+            appendEdge(transformX(graph.x(s)), transformY(graph.y(s)),
+                       transformX(graph.x(t)), transformY(graph.y(t)), radius, arrows);
+        }
+        gc.stroke();
+        if (arrows) {
+            gc.fill();
+        }
+        if (highlightedCount == 0) {
+            return;
+        }
+
+        // Рёбра выделенного пути - вторым штрихом поверх остальных
+        gc.setStroke(HIGHLIGHT);
+        gc.setFill(HIGHLIGHT);
+        gc.setLineWidth(arrows ? HIGHLIGHT_STROKE : 2);
+        gc.beginPath();
+        for (int i = 0; i < visibleEdgeCount; i++) {
+            int s = visibleEdges[2 * i];
+            int t = visibleEdges[2 * i + 1];
+            if (highlightedEdges.contains(edgeKey(s, t))) {
+                appendEdge(transformX(graph.x(s)), transformY(graph.y(s)),
+                           transformX(graph.x(t)), transformY(graph.y(t)), radius, arrows);
+            }
+        }
+        gc.stroke();
+        if (arrows) {
+            gc.fill();
+        }
+    }
+
+    // В режиме слияния путь рисуется ломаной поверх сетки
+    private void drawAggregatedHighlight() {
+        gc.setStroke(HIGHLIGHT);
+        gc.setLineWidth(2);
+        gc.beginPath();
+        for (int i = 0; i < highlightedPath.length; i++) {
+            int v = highlightedPath[i];
+            double x = transformX(graph.x(v));
+            double y = transformY(graph.y(v));
+            if (i == 0) {
+                gc.moveTo(x, y);
+            } else {
+                gc.lineTo(x, y);
+            }
+        }
+        gc.stroke();
+    }
+
+    // Рёбра с концами в одних и тех же экранных ячейках рисуются одним отрезком
+    private void drawAggregatedEdges() {
+        LongHashSet drawn = new LongHashSet(Math.min(visibleEdgeCount, 1 << 16));
+        gc.setStroke(AGGREGATED_EDGE);
+        gc.setLineWidth(1);
+        gc.beginPath();
+        for (int i = 0; i < visibleEdgeCount; i++) {
+            int s = visibleEdges[2 * i];
+            int t = visibleEdges[2 * i + 1];
+            int sc = screenCell(transformX(graph.x(s)), transformY(graph.y(s)));
+            int tc = screenCell(transformX(graph.x(t)), transformY(graph.y(t)));
+            if (sc == tc || !drawn.add(((long) sc << 32) | (tc & 0xFFFFFFFFL))) {
+                continue;
+            }
+            gc.moveTo(cellCenterX(sc), cellCenterY(sc));
+            gc.lineTo(cellCenterX(tc), cellCenterY(tc));
+        }
+        gc.stroke();
+    }
+
+    private void drawVertices() {
+        double radius = vertexRadius();
+        double d = 2 * radius;
+        boolean outline = radius >= OUTLINE_MIN_RADIUS;
+        boolean labels = radius >= LABEL_MIN_RADIUS;
+        gc.setStroke(Color.BLACK);
+        gc.setLineWidth(VERTEX_STROKE);
+        gc.setFont(LABEL_FONT);
+        for (int i = 0; i < visibleVertexCount; i++) {
+            int v = visibleVertices[i];
+            double x = transformX(graph.x(v));
+            double y = transformY(graph.y(v));
+            gc.setFill(PALETTE[state[v]]);
+            gc.fillOval(x - radius, y - radius, d, d);
+            if (highlighted != null && highlighted[v]) {
+                gc.setStroke(HIGHLIGHT);
+                gc.setLineWidth(outline ? HIGHLIGHT_STROKE : 1);
+                gc.strokeOval(x - radius, y - radius, d, d);
+                gc.setStroke(Color.BLACK);
+                gc.setLineWidth(VERTEX_STROKE);
+            } else if (outline) {
+                gc.strokeOval(x - radius, y - radius, d, d);
+            }
+            if (labels) {
+                gc.setFill(Color.BLACK);
+                gc.fillText(graph.name(v), x - 5, y + 5);
+            }
+        }
+    }
+
+    // Вершины сливаются в квадраты экранной сетки цвета самого "старшего" состояния
+    private void drawAggregatedVertices() {
+        int columns = (int) Math.ceil(canvas.getWidth() / AGGREGATE_CELL);
+        int rows = (int) Math.ceil(canvas.getHeight() / AGGREGATE_CELL);
+        byte[] cells = new byte[columns * rows];
+        for (int i = 0; i < visibleVertexCount; i++) {
+            int v = visibleVertices[i];
+            int column = (int) Math.floor(transformX(graph.x(v)) / AGGREGATE_CELL);
+            int row = (int) Math.floor(transformY(graph.y(v)) / AGGREGATE_CELL);
+            if (column >= 0 && column < columns && row >= 0 && row < rows) {
+                int cell = row * columns + column;
+                cells[cell] = (byte) Math.max(cells[cell], state[v] + 1);
+            }
+        }
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0) {
+                gc.setFill(PALETTE[cells[cell] - 1]);
+                gc.fillRect((cell % columns) * AGGREGATE_CELL, (cell / columns) * AGGREGATE_CELL,
+                            AGGREGATE_CELL, AGGREGATE_CELL);
+            }
+        }
+    }
+
+    // Линия ребра и треугольник стрелки добавляются в общий путь
+    private void appendEdge(double x1, double y1, double x2, double y2, double radius, boolean arrow) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        if (length < 1e-6) {
+            return;
+        }
+        dx /= length;
+        dy /= length;
+
+        // Отступаем от конечной точки на радиус вершины
+        double endX = x2 - radius * dx;
+        double endY = y2 - radius * dy;
+        gc.moveTo(x1, y1);
+        gc.lineTo(endX, endY);
+        if (!arrow) {
+            return;
+        }
+
+        double ax = ARROW_LENGTH * (dx * ARROW_COS + dy * ARROW_SIN);
+        double ay = ARROW_LENGTH * (dy * ARROW_COS - dx * ARROW_SIN);
+        double bx = ARROW_LENGTH * (dx * ARROW_COS - dy * ARROW_SIN);
+        double by = ARROW_LENGTH * (dy * ARROW_COS + dx * ARROW_SIN);
+        gc.moveTo(endX, endY);
+        gc.lineTo(endX - ax, endY - ay);
+        gc.lineTo(endX - bx, endY - by);
+        gc.closePath();
+    }
+
+    private void onMousePressed(MouseEvent event) {
+        dragX = event.getX();
+        dragY = event.getY();
+    }
+
+    private void onMouseDragged(MouseEvent event) {
+        offsetX += event.getX() - dragX;
+        offsetY += event.getY() - dragY;
+        dragX = event.getX();
+        dragY = event.getY();
+        hideTooltip();
+        requestRedraw();
+    }
+
+    // Масштабирование относительно точки под курсором
+    private void onScroll(ScrollEvent event) {
+        if (event.getDeltaY() == 0) {
+            return;
+        }
+        double factor = Math.pow(ZOOM_STEP, event.getDeltaY() / 40);
+        double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        factor = newScale / scale;
+        offsetX = event.getX() - (event.getX() - offsetX) * factor;
+        offsetY = event.getY() - (event.getY() - offsetY) * factor;
+        scale = newScale;
+        hideTooltip();
+        requestRedraw();
+        event.consume();
+    }
+
+    // Подсказка с именем вершины под курсором
+    private void onMouseMoved(MouseEvent event) {
+        int v = vertexAt(event.getX(), event.getY());
+        if (v == hovered) {
+            return;
+        }
+        hovered = v;
+        if (v < 0) {
+            tooltip.hide();
+        } else {
+            tooltip.setText(graph.name(v));
+            tooltip.show(canvas, event.getScreenX() + 12, event.getScreenY() + 12);
+        }
+    }
+
+    private void hideTooltip() {
+        hovered = -1;
+        tooltip.hide();
+    }
+
+    // Радиус вершины на экране уменьшается вместе с масштабом, но не больше исходного
+    private double vertexRadius() {
+        return Math.max(MIN_RADIUS, Math.min(VERTEX_RADIUS, VERTEX_RADIUS * scale));
+    }
+
+    private static long edgeKey(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    // Далёкие за краем экрана точки прижимаются к границе диапазона ячеек
+    private static int screenCell(double x, double y) {
+        int column = clampCell(Math.floor(x / AGGREGATE_CELL));
+        int row = clampCell(Math.floor(y / AGGREGATE_CELL));
+        return (row + CELL_BIAS) << 16 | (column + CELL_BIAS);
+    }
+
+    private static int clampCell(double cell) {
+        return (int) Math.max(-CELL_BIAS, Math.min(CELL_BIAS - 1, cell));
+    }
+
+    private static double cellCenterX(int cell) {
+        return ((cell & 0xFFFF) - CELL_BIAS + 0.5) * AGGREGATE_CELL;
+    }
+
+    private static double cellCenterY(int cell) {
+        return ((cell >>> 16) - CELL_BIAS + 0.5) * AGGREGATE_CELL;
+    }
+
+    private double transformX(double x) {
+        return offsetX + x * scale;
+    }
+
+    private double transformY(double y) {
+        return offsetY + y * scale;
+    }
+
+    private double worldX(double screenX) {
+        return (screenX - offsetX) / scale;
+    }
+
+    private double worldY(double screenY) {
+        return (screenY - offsetY) / scale;
+    }
+}
@@ -1,9 +1,35 @@
+import java.util.ArrayList;
 import java.util.List;
 
 public interface IConstGraph {
     Vertex getVertexByName (String name);
     List<Vertex> getVertices();
     boolean exists(Vertex vertex);
+
+    /**
+     * Ищет в графе цикл за O(V + E) без рекурсии
+     *
+     * @return вершины цикла по порядку или пустой список, если граф ацикличен
+     */
+    default List<Vertex> findCycle() {
+        CsrGraph csr = CsrGraph.fromGraph(this);
+        List<Vertex> cycle = new ArrayList<>();
+        for (int v : CycleDetector.findCycle(csr)) {
+            cycle.add(csr.vertexAt(v));
+        }
+        return cycle;
+    }
+
+    /**
+     * Проверяет, что граф ацикличен
+     *
+     * @throws CycleException если в графе есть цикл
+     */
+    default void requireAcyclic() {
+        List<Vertex> cycle = findCycle();
+        if (!cycle.isEmpty()) {
+            throw new CycleException("Граф содержит цикл", cycle);
+        }
+    }
     
 }
-
@@ -1,6 +1,7 @@
 public interface IGraph extends IConstGraph {
     void addVertex (Vertex vertex);
     void addEdge(Vertex _s, Vertex _e);
+    void removeEdge(Vertex _s, Vertex _e);
     
 }
 
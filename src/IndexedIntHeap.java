@@ -0,0 +1,156 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Индексированная d-арная куча вершин 0..n-1 с примитивными ключами long.
+ * Извлекается вершина с наименьшим ключом, при равных ключах - с меньшим индексом,
+ * поэтому порядок извлечения всегда однозначен.
+ *
+ * Массив pos хранит место каждой вершины в куче, так что, кроме вставки
+ * и извлечения минимума, за O(log n) удаляется и произвольная вершина.
+ * Объектов при работе не создаётся.
+ */
+public final class IndexedIntHeap {
+    // Четыре потомка на узел: дерево ниже, а потомки одного узла лежат рядом в памяти
+    private static final int ARITY = 4;
+
+    private final long[] keys;
+    private final int[] heap;
+    // pos[v] - место вершины v в heap или -1, если её в куче нет
+    private final int[] pos;
+    private int size;
+
+    /**
+     * @param keys ключи вершин; массив не копируется и не должен меняться, пока куча используется
+     */
+    public IndexedIntHeap(long[] keys) {
+        this.keys = keys;
+        this.heap = new int[keys.length];
+        this.pos = new int[keys.length];
+        Arrays.fill(pos, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return true, если вершина сейчас в куче
+     */
+    public boolean contains(int v) {
+        return pos[v] >= 0;
+    }
+
+    /**
+     * Добавляет вершину
+     *
+     * @param v индекс вершины
+     * @throws IllegalStateException если вершина уже в куче
+     */
+    public void push(int v) {
+        if (pos[v] >= 0) {
+            throw new IllegalStateException("Вершина уже в куче: " + v);
+        }
+        heap[size] = v;
+        pos[v] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Извлекает вершину с наименьшим ключом
+     *
+     * @return индекс вершины
+     * @throws NoSuchElementException если куча пуста
+     */
+    public int pop() {
+        if (size == 0) {
+            throw new NoSuchElementException("Куча пуста");
+        }
+        int top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    /**
+     * Удаляет вершину из кучи
+     *
+     * @param v индекс вершины
+     * @throws IllegalStateException если вершины нет в куче
+     */
+    public void remove(int v) {
+        int i = pos[v];
+        if (i < 0) {
+            throw new IllegalStateException("Вершины нет в куче: " + v);
+        }
+        removeAt(i);
+    }
+
+    private void removeAt(int i) {
+        pos[heap[i]] = -1;
+        int last = heap[--size];
+        if (i == size) {
+            return;
+        }
+        heap[i] = last;
+        pos[last] = i;
+        // Последний элемент может оказаться как меньше, так и больше соседей на новом месте
+        if (i > 0 && less(last, heap[(i - 1) / ARITY])) {
+            siftUp(i);
+        } else {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            int p = heap[parent];
+            if (!less(v, p)) {
+                break;
+            }
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        while (true) {
+            int first = i * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int best = first;
+            int end = Math.min(first + ARITY, size);
+            for (int c = first + 1; c < end; c++) {
+                if (less(heap[c], heap[best])) {
+                    best = c;
+                }
+            }
+            int child = heap[best];
+            if (!less(child, v)) {
+                break;
+            }
+            heap[i] = child;
+            pos[child] = i;
+            i = best;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+
+    private boolean less(int a, int b) {
+        long ka = keys[a];
+        long kb = keys[b];
+        return ka < kb || (ka == kb && a < b);
+    }
+}
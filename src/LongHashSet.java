@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * Множество примитивных long-ключей с открытой адресацией.
+ * Используется графом для хранения рёбер без упаковки каждого ключа в Long.
+ */
+final class LongHashSet {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int size;
+    private int mask;
+
+    /**
+     * Создает пустое множество
+     */
+    LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Создает множество, рассчитанное на заданное число ключей без перехеширования
+     *
+     * @param expected ожидаемое количество ключей
+     */
+    LongHashSet(int expected) {
+        int capacity = tableSizeFor((int) Math.min(1 << 30, (long) (expected / LOAD_FACTOR) + 1));
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Добавляет ключ
+     *
+     * @param key ключ (не равен Long.MIN_VALUE)
+     * @return true, если ключа ещё не было
+     */
+    boolean add(long key) {
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        size++;
+        return true;
+    }
+
+    /**
+     * @param key ключ
+     * @return true, если ключ присутствует
+     */
+    boolean contains(long key) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Удаляет ключ
+     *
+     * @param key ключ
+     * @return true, если ключ присутствовал
+     */
+    boolean remove(long key) {
+        int i = slot(key);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // Сдвигаем последующие ключи цепочки, чтобы не оставлять "дыр"
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != EMPTY) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return количество ключей
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Заранее расширяет таблицу под заданное общее число ключей
+     *
+     * @param expected ожидаемое общее количество ключей
+     */
+    void ensureCapacity(int expected) {
+        if (expected > keys.length * LOAD_FACTOR) {
+            rehash(tableSizeFor((int) Math.min(1 << 30, (long) (expected / LOAD_FACTOR) + 1)));
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int i = slot(key);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = 16;
+        while (capacity < n) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Получатель замеров горячих участков: разбора или отображения графа, подготовки сортировки,
+ * самой сортировки и отрисовки.
+ *
+ * По умолчанию установлен NOOP, все методы которого пусты, поэтому после
+ * встраивания JIT-компилятором замеры ничего не стоят. Включается запись
+ * свойством -Dtopo.metrics=true, параметром --metrics пакетной сортировки
+ * или кнопкой Metrics в интерфейсе (см. RecordingMetrics).
+ */
+public interface Metrics {
+
+    /**
+     * Пустая реализация: замеры отключены
+     */
+    Metrics NOOP = new Metrics() {};
+
+    /**
+     * @return установленный получатель замеров
+     */
+    static Metrics get() {
+        return Registry.current;
+    }
+
+    /**
+     * Устанавливает получателя замеров для всего приложения
+     *
+     * @param metrics получатель или null, чтобы отключить замеры
+     */
+    static void set(Metrics metrics) {
+        Registry.current = metrics != null ? metrics : NOOP;
+    }
+
+    /**
+     * Вызывающий код может пропустить подготовку замера (например, подсчёт байт),
+     * если замеры отключены
+     *
+     * @return true, если замеры записываются
+     */
+    default boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Граф прочитан из JSON
+     *
+     * @param chars прочитано символов входного текста (не байт: для UTF-8 и gzip они различаются)
+     * @param nanos время разбора
+     * @param vertices количество вершин
+     * @param edges количество рёбер
+     */
+    default void graphParsed(long chars, long nanos, int vertices, int edges) {}
+
+    /**
+     * Бинарный граф .graphb отображён в память и проверен
+     *
+     * @param bytes размер файла
+     * @param nanos время отображения и проверки
+     * @param vertices количество вершин
+     * @param edges количество рёбер
+     */
+    default void graphMapped(long bytes, long nanos, int vertices, int edges) {}
+
+    /**
+     * Сортировщик подсчитал степени входа и заполнил очередь
+     *
+     * @param vertices количество вершин
+     * @param edges количество рёбер
+     * @param nanos время подготовки
+     */
+    default void sorterInitialized(int vertices, int edges, long nanos) {}
+
+    /**
+     * Очередь сортировщика впервые опустела
+     *
+     * @param stats счётчики сортировщика
+     */
+    default void sortFinished(TopologicalSorter.Stats stats) {}
+
+    /**
+     * Холст полностью перерисован
+     *
+     * @param vertices нарисовано вершин
+     * @param edges нарисовано рёбер
+     * @param aggregated рисовалась ли плотность вместо отдельных фигур
+     * @param nanos время отрисовки
+     */
+    default void graphRendered(int vertices, int edges, boolean aggregated, long nanos) {}
+
+    /**
+     * Хранит установленного получателя; изначально он задаётся свойством topo.metrics
+     */
+    final class Registry {
+        private static volatile Metrics current = Boolean.getBoolean("topo.metrics") ? new RecordingMetrics() : NOOP;
+
+        private Registry() {}
+    }
+}
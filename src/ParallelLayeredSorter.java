@@ -0,0 +1,283 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Параллельная поуровневая топологическая сортировка.
+ * На каждом раунде обрабатывается весь текущий фронт (вершины, чья степень
+ * входа стала нулевой в одном и том же раунде) средствами fork-join;
+ * степени входа уменьшаются атомарно. Фронт делится между задачами
+ * по числу исходящих рёбер, а не вершин, поэтому вершина с огромной
+ * степенью не достаётся целиком одному потоку.
+ * Результат - список слоёв (антицепей) и их конкатенация, которая является
+ * корректным порядком алгоритма Кана.
+ */
+public final class ParallelLayeredSorter {
+    // Меньшие фронты обрабатываются в текущем потоке без разбиения на задачи
+    private static final int GRAIN = 2048;
+    // Наибольшее число рёбер, которое задача обрабатывает без разбиения
+    private static final int EDGE_GRAIN = GRAIN * 8;
+    private static final int LOCAL_BUFFER = 256;
+
+    private final IConstGraph graph;
+    private final CsrGraph csr;
+    private final ForkJoinPool pool;
+    private List<int[]> layers;
+    private int sortedCount;
+
+    /**
+     * Создает сортировщик, использующий общий пул fork-join
+     *
+     * @param graph граф, который будет отсортирован
+     */
+    public ParallelLayeredSorter(IConstGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Создает сортировщик, использующий заданный пул fork-join
+     *
+     * @param graph граф, который будет отсортирован
+     * @param pool пул потоков
+     */
+    public ParallelLayeredSorter(IConstGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.csr = CsrGraph.fromGraph(graph);
+        this.pool = pool;
+    }
+
+    /**
+     * Возвращает слои сортировки. Вершины внутри слоя упорядочены по индексу.
+     * Сортировка выполняется при первом обращении.
+     *
+     * @return неизменяемый список слоёв с индексами вершин
+     */
+    public List<int[]> layers() {
+        if (layers == null) {
+            layers = Collections.unmodifiableList(computeLayers());
+        }
+        return layers;
+    }
+
+    /**
+     * Возвращает слои сортировки в виде вершин
+     *
+     * @return список слоёв
+     */
+    public List<List<Vertex>> vertexLayers() {
+        List<List<Vertex>> result = new ArrayList<>(layers().size());
+        for (int[] layer : layers()) {
+            List<Vertex> vertices = new ArrayList<>(layer.length);
+            for (int v : layer) {
+                vertices.add(csr.vertexAt(v));
+            }
+            result.add(vertices);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает порядок, полученный конкатенацией слоёв
+     *
+     * @return индексы вершин в топологическом порядке
+     */
+    public int[] order() {
+        int[] order = new int[sortedCount()];
+        int k = 0;
+        for (int[] layer : layers()) {
+            System.arraycopy(layer, 0, order, k, layer.length);
+            k += layer.length;
+        }
+        return order;
+    }
+
+    /**
+     * @return количество вершин, попавших в слои
+     */
+    public int sortedCount() {
+        layers();
+        return sortedCount;
+    }
+
+    /**
+     * Проверяет, попали ли в слои все вершины.
+     * Если нет, граф содержит цикл.
+     *
+     * @return true, если граф полностью отсортирован
+     */
+    public boolean isComplete() {
+        return sortedCount() == csr.vertexCount();
+    }
+
+    /**
+     * @return исходный граф
+     */
+    public IConstGraph getGraph() {
+        return graph;
+    }
+
+    private List<int[]> computeLayers() {
+        int n = csr.vertexCount();
+        AtomicIntegerArray inDegree = new AtomicIntegerArray(n);
+        pool.invoke(new InDegreeTask(inDegree, 0, n));
+
+        int[] frontier = new int[n];
+        int[] next = new int[n];
+        // edgeStart[i] - число рёбер у вершин frontier[0..i)
+        int[] edgeStart = new int[n + 1];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree.get(v) == 0) {
+                frontier[size++] = v;
+            }
+        }
+
+        List<int[]> result = new ArrayList<>();
+        AtomicInteger nextSize = new AtomicInteger();
+        sortedCount = 0;
+        while (size > 0) {
+            result.add(Arrays.copyOf(frontier, size));
+            sortedCount += size;
+
+            int edges = 0;
+            for (int i = 0; i < size; i++) {
+                edgeStart[i] = edges;
+                edges += csr.outDegree(frontier[i]);
+            }
+            edgeStart[size] = edges;
+
+            nextSize.set(0);
+            FrontierTask task = new FrontierTask(inDegree, frontier, edgeStart, size, 0, edges, next, nextSize);
+            if (edges <= EDGE_GRAIN) {
+                task.compute();
+            } else {
+                pool.invoke(task);
+            }
+
+            size = nextSize.get();
+            if (size > GRAIN) {
+                Arrays.parallelSort(next, 0, size);
+            } else {
+                Arrays.sort(next, 0, size);
+            }
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+        return result;
+    }
+
+    /**
+     * Подсчёт степеней входа по отрезку вершин-источников
+     */
+    private final class InDegreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicIntegerArray inDegree;
+        private final int from;
+        private final int to;
+
+        InDegreeTask(AtomicIntegerArray inDegree, int from, int to) {
+            this.inDegree = inDegree;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (csr.firstEdge(to) - csr.firstEdge(from) > EDGE_GRAIN && to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new InDegreeTask(inDegree, from, mid), new InDegreeTask(inDegree, mid, to));
+                return;
+            }
+            for (int e = csr.firstEdge(from); e < csr.firstEdge(to); e++) {
+                inDegree.incrementAndGet(csr.target(e));
+            }
+        }
+    }
+
+    /**
+     * Обработка отрезка [from, to) рёбер фронта, пронумерованных подряд
+     * в порядке вершин фронта: уменьшение степеней входа соседей
+     * и сбор вершин следующего слоя
+     */
+    private final class FrontierTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicIntegerArray inDegree;
+        private final int[] frontier;
+        private final int[] edgeStart;
+        private final int size;
+        private final int from;
+        private final int to;
+        private final int[] next;
+        private final AtomicInteger nextSize;
+
+        FrontierTask(AtomicIntegerArray inDegree, int[] frontier, int[] edgeStart, int size,
+                     int from, int to, int[] next, AtomicInteger nextSize) {
+            this.inDegree = inDegree;
+            this.frontier = frontier;
+            this.edgeStart = edgeStart;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+            this.next = next;
+            this.nextSize = nextSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > EDGE_GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FrontierTask(inDegree, frontier, edgeStart, size, from, mid, next, nextSize),
+                          new FrontierTask(inDegree, frontier, edgeStart, size, mid, to, next, nextSize));
+                return;
+            }
+
+            int[] buffer = new int[LOCAL_BUFFER];
+            int buffered = 0;
+            // Отрезок может начинаться и заканчиваться посреди рёбер одной вершины
+            for (int i = vertexOfEdge(from), edge = from; edge < to; i++) {
+                int v = frontier[i];
+                int end = Math.min(to, edgeStart[i + 1]);
+                int base = csr.firstEdge(v) - edgeStart[i];
+                for (int e = base + edge; e < base + end; e++) {
+                    int u = csr.target(e);
+                    if (inDegree.decrementAndGet(u) == 0) {
+                        if (buffered == buffer.length) {
+                            flush(buffer, buffered);
+                            buffered = 0;
+                        }
+                        buffer[buffered++] = u;
+                    }
+                }
+                edge = end;
+            }
+            flush(buffer, buffered);
+        }
+
+        // Позиция во фронте вершины, которой принадлежит ребро с номером edge
+        private int vertexOfEdge(int edge) {
+            int low = 0;
+            int high = size - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (edgeStart[mid] <= edge) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        private void flush(int[] buffer, int count) {
+            if (count > 0) {
+                int at = nextSize.getAndAdd(count);
+                System.arraycopy(buffer, 0, next, at, count);
+            }
+        }
+    }
+}
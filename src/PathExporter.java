@@ -0,0 +1,255 @@
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Потоковая выгрузка топологического порядка в файл или канал.
+ *
+ * Порядок пишется по одной вершине через буфер канала, без сборки
+ * всего результата в строку, поэтому размер выгрузки не ограничен памятью.
+ * Класс не зависит от JavaFX и используется и интерфейсом, и BatchSorter.
+ *
+ * Бинарный формат (.tsorder) - массив рангов, который можно отобразить в память.
+ * Все числа - int в порядке little-endian:
+ * <pre>
+ * заголовок (16 байт): magic "TSOR", версия, n, число отсортированных вершин
+ * ranks  int[n]  место вершины в порядке или -1, если она не отсортирована
+ * </pre>
+ */
+public final class PathExporter {
+    private static final int MAGIC = 0x524F5354; // "TSOR" в little-endian
+    private static final int VERSION = 1;
+    private static final String SEPARATOR = " -> ";
+    // Как часто проверяется прерывание потока при выгрузке
+    private static final int INTERRUPT_CHECK_MASK = (1 << 16) - 1;
+
+    /**
+     * Формат выгрузки
+     */
+    public enum Format {
+        /** Строка "a -> b -> c", как раньше сохранял интерфейс */
+        ARROWS("txt", "Arrow path"),
+        /** Одно имя вершины на строку */
+        NAMES("lst", "Vertex names"),
+        /** CSV со столбцами rank, layer, name */
+        CSV("csv", "CSV"),
+        /** JSON-объект с количеством вершин и массивом имён */
+        JSON("json", "JSON"),
+        /** Массив рангов int[n] для отображения в память */
+        BINARY("tsorder", "Binary ranks");
+
+        private final String extension;
+        private final String description;
+
+        Format(String extension, String description) {
+            this.extension = extension;
+            this.description = description;
+        }
+
+        /**
+         * @return расширение файла без точки
+         */
+        public String extension() {
+            return extension;
+        }
+
+        /**
+         * @return название формата для диалогов
+         */
+        public String description() {
+            return description;
+        }
+
+        /**
+         * Находит формат по имени из командной строки (без учёта регистра)
+         *
+         * @param name имя формата
+         * @return формат
+         * @throws IllegalArgumentException если формат неизвестен
+         */
+        public static Format parse(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестный формат выгрузки: " + name
+                + ", доступны: " + Arrays.toString(values()).toLowerCase());
+        }
+    }
+
+    // Приватный конструктор - утилитарный класс
+    private PathExporter() {}
+
+    /**
+     * Выгружает уже отсортированную часть порядка
+     *
+     * @param sorter сортировщик
+     * @param format формат
+     * @param target файл результата (перезаписывается)
+     * @throws IOException при ошибке записи
+     */
+    public static void export(TopologicalSorter sorter, Format format, Path target) throws IOException {
+        try (FileChannel channel = openTarget(target)) {
+            write(sorter.getCsrGraph(), sorter.sortedCount(), sorter::sortedIndexAt, format, channel);
+        }
+    }
+
+    /**
+     * Выгружает порядок, заданный массивом индексов вершин
+     *
+     * @param graph граф
+     * @param order индексы вершин в топологическом порядке
+     * @param count длина порядка
+     * @param format формат
+     * @param target файл результата (перезаписывается)
+     * @throws IOException при ошибке записи
+     */
+    public static void export(CsrGraph graph, int[] order, int count, Format format, Path target) throws IOException {
+        try (FileChannel channel = openTarget(target)) {
+            export(graph, order, count, format, channel);
+        }
+    }
+
+    /**
+     * Выгружает порядок в открытый канал. Канал не закрывается,
+     * так что так можно писать, например, в stdout.
+     *
+     * @param graph граф
+     * @param order индексы вершин в топологическом порядке
+     * @param count длина порядка
+     * @param format формат
+     * @param channel канал результата
+     * @throws IOException при ошибке записи
+     */
+    public static void export(CsrGraph graph, int[] order, int count, Format format,
+                              WritableByteChannel channel) throws IOException {
+        if (count < 0 || count > order.length) {
+            throw new IllegalArgumentException("Некорректная длина порядка: " + count);
+        }
+        write(graph, count, i -> order[i], format, channel);
+    }
+
+    private static FileChannel openTarget(Path target) throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static void write(CsrGraph graph, int count, IntUnaryOperator order, Format format,
+                              WritableByteChannel channel) throws IOException {
+        switch (format) {
+            case ARROWS -> writeText(graph, count, order, channel, SEPARATOR, false);
+            case NAMES -> writeText(graph, count, order, channel, "\n", true);
+            case CSV -> writeCsv(graph, count, order, channel);
+            case JSON -> writeJson(graph, count, order, channel);
+            case BINARY -> writeRanks(graph, count, order, channel);
+        }
+    }
+
+    private static void writeText(CsrGraph graph, int count, IntUnaryOperator order, WritableByteChannel channel,
+                                  String separator, boolean trailing) throws IOException {
+        BinaryGraphFormat.ChannelWriter out = new BinaryGraphFormat.ChannelWriter(channel);
+        byte[] separatorBytes = separator.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < count; i++) {
+            checkInterrupted(i);
+            if (i > 0) {
+                out.putBytes(separatorBytes);
+            }
+            out.putBytes(graph.name(order.applyAsInt(i)).getBytes(StandardCharsets.UTF_8));
+        }
+        if (trailing && count > 0) {
+            out.putBytes(separatorBytes);
+        }
+        out.flush();
+    }
+
+    private static void writeCsv(CsrGraph graph, int count, IntUnaryOperator order,
+                                 WritableByteChannel channel) throws IOException {
+        int[] layers = layers(graph, count, order);
+        BinaryGraphFormat.ChannelWriter out = new BinaryGraphFormat.ChannelWriter(channel);
+        out.putBytes("rank,layer,name\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < count; i++) {
+            checkInterrupted(i);
+            int v = order.applyAsInt(i);
+            String row = i + "," + layers[v] + "," + csvField(graph.name(v)) + "\n";
+            out.putBytes(row.getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+    }
+
+    private static void writeJson(CsrGraph graph, int count, IntUnaryOperator order,
+                                  WritableByteChannel channel) throws IOException {
+        // Writer над каналом не закрывается, чтобы не закрыть сам канал
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("vertices").value(graph.vertexCount());
+        json.name("sorted").value(count);
+        json.name("order").beginArray();
+        for (int i = 0; i < count; i++) {
+            checkInterrupted(i);
+            json.value(graph.name(order.applyAsInt(i)));
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private static void writeRanks(CsrGraph graph, int count, IntUnaryOperator order,
+                                   WritableByteChannel channel) throws IOException {
+        int n = graph.vertexCount();
+        int[] ranks = new int[n];
+        Arrays.fill(ranks, -1);
+        for (int i = 0; i < count; i++) {
+            ranks[order.applyAsInt(i)] = i;
+        }
+
+        BinaryGraphFormat.ChannelWriter out = new BinaryGraphFormat.ChannelWriter(channel);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(n);
+        out.putInt(count);
+        for (int v = 0; v < n; v++) {
+            checkInterrupted(v);
+            out.putInt(ranks[v]);
+        }
+        out.flush();
+    }
+
+    // Слой вершины - длина самого длинного пути до неё; считается одним проходом по порядку,
+    // потому что все предшественники отсортированной вершины стоят раньше неё
+    private static int[] layers(CsrGraph graph, int count, IntUnaryOperator order) {
+        int[] layers = new int[graph.vertexCount()];
+        for (int i = 0; i < count; i++) {
+            int v = order.applyAsInt(i);
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                int w = graph.target(e);
+                layers[w] = Math.max(layers[w], layers[v] + 1);
+            }
+        }
+        return layers;
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void checkInterrupted(int i) throws InterruptedIOException {
+        if ((i & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Выгрузка прервана");
+        }
+    }
+}
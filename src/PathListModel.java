@@ -0,0 +1,126 @@
+import javafx.collections.ObservableListBase;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Наблюдаемый список вершин топологического пути для ListView.
+ * Путь меняется только с конца: шаг вперёд дописывает вершину, шаг назад
+ * её убирает, и каждое изменение стоит O(1) и порождает одно событие.
+ * Элементы списка - индексы вершин в CSR-графе; имена берутся только
+ * для видимых ячеек, так что длинный путь не превращается в одну строку.
+ */
+public class PathListModel extends ObservableListBase<Integer> {
+    private int[] path = new int[16];
+    private int size;
+    // position[v] - место вершины v в пути или -1, если её там нет
+    private int[] position = new int[0];
+
+    /**
+     * Очищает путь и готовит модель к графу с заданным числом вершин
+     *
+     * @param vertexCount количество вершин графа
+     */
+    public void reset(int vertexCount) {
+        beginChange();
+        if (size > 0) {
+            // Удалённые элементы отдаются представлением над старым массивом, без копирования
+            int[] removed = path;
+            int removedSize = size;
+            nextRemove(0, new AbstractList<Integer>() {
+                @Override
+                public Integer get(int index) {
+                    Objects.checkIndex(index, removedSize);
+                    return removed[index];
+                }
+
+                @Override
+                public int size() {
+                    return removedSize;
+                }
+            });
+            path = new int[16];
+        }
+        size = 0;
+        position = new int[vertexCount];
+        Arrays.fill(position, -1);
+        endChange();
+    }
+
+    /**
+     * Дописывает вершину в конец пути
+     *
+     * @param v индекс вершины
+     */
+    public void append(int v) {
+        if (size == path.length) {
+            path = Arrays.copyOf(path, size << 1);
+        }
+        beginChange();
+        position[v] = size;
+        path[size++] = v;
+        nextAdd(size - 1, size);
+        endChange();
+    }
+
+    /**
+     * Убирает последнюю вершину пути
+     *
+     * @return индекс убранной вершины
+     * @throws IllegalStateException если путь пуст
+     */
+    public int popVertex() {
+        if (size == 0) {
+            throw new IllegalStateException("Путь пуст");
+        }
+        beginChange();
+        int v = path[--size];
+        position[v] = -1;
+        nextRemove(size, v);
+        endChange();
+        return v;
+    }
+
+    /**
+     * Выполняет серию изменений как одно событие списка
+     *
+     * @param changes действия с моделью
+     */
+    public void batch(Runnable changes) {
+        beginChange();
+        try {
+            changes.run();
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Возвращает место вершины в пути
+     *
+     * @param v индекс вершины
+     * @return позиция в пути или -1, если вершина ещё не пройдена
+     */
+    public int positionOf(int v) {
+        return v >= 0 && v < position.length ? position[v] : -1;
+    }
+
+    /**
+     * @param index позиция в пути
+     * @return индекс вершины на этой позиции
+     */
+    public int vertexAt(int index) {
+        Objects.checkIndex(index, size);
+        return path[index];
+    }
+
+    @Override
+    public Integer get(int index) {
+        return vertexAt(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
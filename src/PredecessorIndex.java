@@ -0,0 +1,367 @@
+import java.util.*;
+
+/**
+ * Обратные списки смежности графа, поддерживаемые в актуальном состоянии
+ * при добавлении и удалении рёбер.
+ *
+ * Индекс подключается к графу по необходимости и хранит для каждой вершины
+ * индексы предшественников и последователей, поэтому степень входа
+ * известна за O(1), а обходы не ищут вершины в хеш-таблицах графа.
+ *
+ * Замыкания "от чего зависит X" (предки) и "что зависит от X" (потомки)
+ * считаются обходом в ширину с пометками в BitSet и кешируются по вершине
+ * с вытеснением давно не использованных. При изменении графа из кеша
+ * удаляются только те замыкания, которые ребро могло изменить.
+ */
+public final class PredecessorIndex implements GraphListener {
+    private static final int DEFAULT_CACHE_SIZE = 64;
+
+    private final Graph graph;
+    private final int cacheSize;
+
+    private int[][] predecessors;
+    private int[] predecessorCount;
+    private int[][] successors;
+    private int[] successorCount;
+    private int size;
+
+    private final Map<Integer, BitSet> ancestorCache;
+    private final Map<Integer, BitSet> descendantCache;
+
+    /**
+     * Строит индекс с кешем на 64 замыкания каждого вида и подписывается на изменения графа
+     *
+     * @param graph граф
+     */
+    public PredecessorIndex(Graph graph) {
+        this(graph, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Строит индекс и подписывается на изменения графа
+     *
+     * @param graph граф
+     * @param cacheSize сколько замыканий каждого вида хранить в кеше
+     * @throws IllegalArgumentException если размер кеша отрицателен
+     */
+    public PredecessorIndex(Graph graph, int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Размер кеша не может быть отрицательным");
+        }
+        this.graph = graph;
+        this.cacheSize = cacheSize;
+        this.ancestorCache = newCache();
+        this.descendantCache = newCache();
+
+        List<Vertex> vertices = graph.getVertices();
+        int n = vertices.size();
+        int capacity = Math.max(16, n);
+        predecessors = new int[capacity][];
+        predecessorCount = new int[capacity];
+        successors = new int[capacity][];
+        successorCount = new int[capacity];
+        size = n;
+        for (int v = 0; v < n; v++) {
+            for (Vertex u : vertices.get(v).getNeighbors()) {
+                link(v, graph.indexOf(u));
+            }
+        }
+        graph.addListener(this);
+    }
+
+    // Кеш в порядке обращений: при переполнении вытесняется самая давняя запись
+    private Map<Integer, BitSet> newCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BitSet> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Отписывается от изменений графа
+     */
+    public void detach() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return количество входящих рёбер
+     */
+    public int inDegree(int v) {
+        Objects.checkIndex(v, size);
+        return predecessorCount[v];
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return количество исходящих рёбер
+     */
+    public int outDegree(int v) {
+        Objects.checkIndex(v, size);
+        return successorCount[v];
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return индексы вершин, из которых есть ребро в v
+     */
+    public int[] predecessors(int v) {
+        Objects.checkIndex(v, size);
+        return predecessors[v] == null ? new int[0] : Arrays.copyOf(predecessors[v], predecessorCount[v]);
+    }
+
+    /**
+     * Возвращает все вершины, от которых зависит v (из которых v достижима)
+     *
+     * @param v индекс вершины
+     * @return множество индексов предков без самой вершины
+     */
+    public BitSet ancestors(int v) {
+        Objects.checkIndex(v, size);
+        return (BitSet) closure(v, ancestorCache, predecessors, predecessorCount).clone();
+    }
+
+    /**
+     * Возвращает все вершины, которые зависят от v (достижимы из v)
+     *
+     * @param v индекс вершины
+     * @return множество индексов потомков без самой вершины
+     */
+    public BitSet descendants(int v) {
+        Objects.checkIndex(v, size);
+        return (BitSet) closure(v, descendantCache, successors, successorCount).clone();
+    }
+
+    /**
+     * @param vertex вершина
+     * @return вершины, от которых зависит vertex
+     * @throws IllegalArgumentException если вершины нет в графе
+     */
+    public List<Vertex> ancestors(Vertex vertex) {
+        return toVertices(ancestors(indexOf(vertex)));
+    }
+
+    /**
+     * @param vertex вершина
+     * @return вершины, которые зависят от vertex
+     * @throws IllegalArgumentException если вершины нет в графе
+     */
+    public List<Vertex> descendants(Vertex vertex) {
+        return toVertices(descendants(indexOf(vertex)));
+    }
+
+    /**
+     * Сортирует только подграф, затронутый изменением вершин dirty:
+     * сами вершины и все их потомки. Остальные вершины и рёбра не просматриваются,
+     * кроме разметки BitSet и массива степеней входа размером в граф.
+     *
+     * @param dirty индексы изменённых вершин
+     * @return индексы затронутых вершин в топологическом порядке
+     * @throws CycleException если затронутый подграф содержит цикл
+     */
+    public int[] sortAffected(int... dirty) {
+        BitSet cone = new BitSet(size);
+        for (int v : dirty) {
+            Objects.checkIndex(v, size);
+            cone.set(v);
+            cone.or(closure(v, descendantCache, successors, successorCount));
+        }
+
+        // Степени входа считаются только по рёбрам внутри конуса
+        int count = cone.cardinality();
+        int[] order = new int[count];
+        int[] inDegree = new int[size];
+        for (int v = cone.nextSetBit(0); v >= 0; v = cone.nextSetBit(v + 1)) {
+            int degree = 0;
+            for (int i = 0; i < predecessorCount[v]; i++) {
+                degree += cone.get(predecessors[v][i]) ? 1 : 0;
+            }
+            inDegree[v] = degree;
+        }
+
+        int head = 0;
+        int tail = 0;
+        for (int v : dirty) {
+            if (inDegree[v] == 0) {
+                inDegree[v] = -1;
+                order[tail++] = v;
+            }
+        }
+        // Последователи вершины конуса сами лежат в конусе
+        while (head < tail) {
+            int v = order[head++];
+            for (int i = 0; i < successorCount[v]; i++) {
+                int w = successors[v][i];
+                if (--inDegree[w] == 0) {
+                    order[tail++] = w;
+                }
+            }
+        }
+        if (tail < count) {
+            throw new CycleException("Затронутый подграф содержит цикл", cycleAmong(cone, inDegree));
+        }
+        return order;
+    }
+
+    /**
+     * @param dirty изменённые вершины
+     * @return затронутые вершины в топологическом порядке
+     * @throws IllegalArgumentException если вершины нет в графе
+     * @throws CycleException если затронутый подграф содержит цикл
+     */
+    public List<Vertex> sortAffected(Collection<Vertex> dirty) {
+        int[] indices = new int[dirty.size()];
+        int k = 0;
+        for (Vertex vertex : dirty) {
+            indices[k++] = indexOf(vertex);
+        }
+        List<Vertex> result = new ArrayList<>();
+        for (int v : sortAffected(indices)) {
+            result.add(vertex(v));
+        }
+        return result;
+    }
+
+    @Override
+    public void vertexAdded(int vertex) {
+        ensureCapacity(vertex + 1);
+        size = vertex + 1;
+    }
+
+    @Override
+    public void edgeAdded(int source, int target) {
+        link(source, target);
+        // Потомки x меняются, только если x достигает source, но ещё не достигает target
+        descendantCache.entrySet().removeIf(entry ->
+            (entry.getKey() == source || entry.getValue().get(source)) && !entry.getValue().get(target));
+        ancestorCache.entrySet().removeIf(entry ->
+            (entry.getKey() == target || entry.getValue().get(target)) && !entry.getValue().get(source));
+    }
+
+    @Override
+    public void edgeRemoved(int source, int target) {
+        unlink(predecessors[target], predecessorCount, target, source);
+        unlink(successors[source], successorCount, source, target);
+        // Удалённое ребро могло лежать только на путях через обе его вершины
+        descendantCache.entrySet().removeIf(entry ->
+            entry.getKey() == source || entry.getValue().get(source));
+        ancestorCache.entrySet().removeIf(entry ->
+            entry.getKey() == target || entry.getValue().get(target));
+    }
+
+    // Обход в ширину по спискам adjacency; результат кладётся в кеш
+    private BitSet closure(int start, Map<Integer, BitSet> cache, int[][] adjacency, int[] degree) {
+        BitSet cached = cache.get(start);
+        if (cached != null) {
+            return cached;
+        }
+        BitSet seen = new BitSet(size);
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int i = 0; i < degree[v]; i++) {
+                int w = adjacency[v][i];
+                if (!seen.get(w)) {
+                    seen.set(w);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail << 1);
+                    }
+                    queue[tail++] = w;
+                }
+            }
+        }
+        if (cacheSize > 0) {
+            cache.put(start, seen);
+        }
+        return seen;
+    }
+
+    // У каждой оставшейся вершины есть оставшийся предшественник; идём по ним назад до повтора
+    private List<Vertex> cycleAmong(BitSet cone, int[] inDegree) {
+        int v = cone.nextSetBit(0);
+        while (inDegree[v] <= 0) {
+            v = cone.nextSetBit(v + 1);
+        }
+        Map<Integer, Integer> seenAt = new HashMap<>();
+        List<Integer> walk = new ArrayList<>();
+        while (!seenAt.containsKey(v)) {
+            seenAt.put(v, walk.size());
+            walk.add(v);
+            for (int i = 0; i < predecessorCount[v]; i++) {
+                int u = predecessors[v][i];
+                if (cone.get(u) && inDegree[u] > 0) {
+                    v = u;
+                    break;
+                }
+            }
+        }
+        List<Vertex> cycle = new ArrayList<>();
+        for (int i = walk.size() - 1; i >= seenAt.get(v); i--) {
+            cycle.add(vertex(walk.get(i)));
+        }
+        return cycle;
+    }
+
+    private void link(int source, int target) {
+        predecessors[target] = append(predecessors[target], predecessorCount[target]++, source);
+        successors[source] = append(successors[source], successorCount[source]++, target);
+    }
+
+    private static int[] append(int[] list, int count, int value) {
+        if (list == null) {
+            list = new int[4];
+        } else if (count == list.length) {
+            list = Arrays.copyOf(list, count << 1);
+        }
+        list[count] = value;
+        return list;
+    }
+
+    // Порядок в списках не важен, поэтому удаляемый элемент заменяется последним
+    private static void unlink(int[] list, int[] counts, int owner, int value) {
+        int count = counts[owner];
+        for (int i = 0; i < count; i++) {
+            if (list[i] == value) {
+                list[i] = list[count - 1];
+                counts[owner]--;
+                return;
+            }
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > predecessors.length) {
+            int capacity = Math.max(n, predecessors.length << 1);
+            predecessors = Arrays.copyOf(predecessors, capacity);
+            predecessorCount = Arrays.copyOf(predecessorCount, capacity);
+            successors = Arrays.copyOf(successors, capacity);
+            successorCount = Arrays.copyOf(successorCount, capacity);
+        }
+    }
+
+    private List<Vertex> toVertices(BitSet set) {
+        List<Vertex> result = new ArrayList<>(set.cardinality());
+        for (int v = set.nextSetBit(0); v >= 0; v = set.nextSetBit(v + 1)) {
+            result.add(vertex(v));
+        }
+        return result;
+    }
+
+    private int indexOf(Vertex vertex) {
+        int v = graph.indexOf(vertex);
+        if (v < 0) {
+            throw new IllegalArgumentException("Вершина отсутствует в графе: " + vertex.getName());
+        }
+        return v;
+    }
+
+    private Vertex vertex(int v) {
+        return graph.getVertices().get(v);
+    }
+}
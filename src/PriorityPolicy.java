@@ -0,0 +1,123 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Правило выбора следующей вершины среди готовых к извлечению.
+ *
+ * Политика один раз переводит вершины графа в примитивные ключи long;
+ * сортировщик держит готовые вершины в куче по этим ключам и на каждом шаге
+ * извлекает вершину с наименьшим ключом (при равенстве - с меньшим индексом).
+ * Без политики TopologicalSorter работает как раньше - очередью FIFO.
+ */
+@FunctionalInterface
+public interface PriorityPolicy {
+
+    /**
+     * Вычисляет ключи всех вершин
+     *
+     * @param graph граф сортировщика
+     * @return массив ключей длины graph.vertexCount(); меньший ключ извлекается раньше
+     */
+    long[] keys(CsrGraph graph);
+
+    /**
+     * @return политика с обратным порядком ключей (больший ключ извлекается раньше)
+     */
+    default PriorityPolicy reversed() {
+        return graph -> {
+            long[] keys = keys(graph);
+            for (int v = 0; v < keys.length; v++) {
+                keys[v] = ~keys[v];
+            }
+            return keys;
+        };
+    }
+
+    /**
+     * @return извлекается готовая вершина с наименьшим индексом во входном файле
+     */
+    static PriorityPolicy inputOrder() {
+        return graph -> {
+            long[] keys = new long[graph.vertexCount()];
+            for (int v = 0; v < keys.length; v++) {
+                keys[v] = v;
+            }
+            return keys;
+        };
+    }
+
+    /**
+     * Лексикографический порядок: ключ вершины - место её имени среди
+     * отсортированных имён, так что строки сравниваются только при построении
+     *
+     * @return извлекается готовая вершина с наименьшим именем
+     */
+    static PriorityPolicy byName() {
+        return graph -> {
+            int n = graph.vertexCount();
+            Integer[] byName = new Integer[n];
+            for (int v = 0; v < n; v++) {
+                byName[v] = v;
+            }
+            Arrays.sort(byName, Comparator.comparing(graph::name));
+            long[] keys = new long[n];
+            for (int rank = 0; rank < n; rank++) {
+                keys[byName[rank]] = rank;
+            }
+            return keys;
+        };
+    }
+
+    /**
+     * @param priority целочисленный приоритет вершины по её индексу
+     * @return извлекается готовая вершина с наименьшим приоритетом
+     */
+    static PriorityPolicy byLong(IntToLongFunction priority) {
+        return graph -> {
+            long[] keys = new long[graph.vertexCount()];
+            for (int v = 0; v < keys.length; v++) {
+                keys[v] = priority.applyAsLong(v);
+            }
+            return keys;
+        };
+    }
+
+    /**
+     * Вещественные приоритеты переводятся в long с сохранением порядка,
+     * поэтому куча по-прежнему сравнивает только целые числа. NaN считается
+     * больше любого числа.
+     *
+     * @param priority вещественный приоритет вершины по её индексу
+     * @return извлекается готовая вершина с наименьшим приоритетом
+     */
+    static PriorityPolicy byDouble(IntToDoubleFunction priority) {
+        return graph -> {
+            long[] keys = new long[graph.vertexCount()];
+            for (int v = 0; v < keys.length; v++) {
+                long bits = Double.doubleToLongBits(priority.applyAsDouble(v) + 0.0);
+                // У отрицательных чисел инвертируются все биты, кроме знакового
+                keys[v] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+            }
+            return keys;
+        };
+    }
+
+    /**
+     * Находит политику по имени из командной строки
+     *
+     * @param name fifo, index или name
+     * @return политика или null для очереди FIFO
+     * @throws IllegalArgumentException если имя неизвестно
+     */
+    static PriorityPolicy parse(String name) {
+        return switch (name.toLowerCase()) {
+            case "fifo" -> null;
+            case "index" -> inputOrder();
+            case "name" -> byName();
+            default -> throw new IllegalArgumentException(
+                "Неизвестная политика выбора вершин: " + name + ", доступны: fifo, index, name");
+        };
+    }
+}
@@ -0,0 +1,544 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Индекс достижимости ациклического графа: отвечает, достижима ли вершина v
+ * из u, то есть обязана ли работа u выполниться раньше v. Если ни одна
+ * из двух вершин не достижима из другой, работы можно выполнять одновременно.
+ *
+ * Каждой вершине назначаются метки, вычисленные за O(V + E):
+ * - ранги в двух разных топологических порядках и уровень (длина самого
+ *   длинного пути до вершины): если u достигает v, все три у u меньше;
+ * - номер выхода post при обходе в глубину: все потомки u закончены раньше u,
+ *   поэтому post[v] лежит в отрезке [low[u], post[u]], где low[u] - минимум
+ *   post по всем потомкам; вне отрезка v недостижима;
+ * - отрезок поддерева u в остовном лесе обхода: если post[v] лежит в нём,
+ *   v достижима по рёбрам дерева;
+ * - битовые маски по HUBS вершинам-узлам с наибольшим произведением степеней:
+ *   каких узлов достигает вершина и какие узлы достигают её. Если u достигает
+ *   узла, который достигает v, путь есть.
+ * Большинство запросов решается метками за O(1). Остальные - обходом
+ * в глубину из u, который не заходит в вершины, чьи метки исключают v
+ * и просматривает не больше SEARCH_BUDGET рёбер. Если бюджета не хватило,
+ * для u один раз строится множество всех потомков: битовое множество
+ * по номерам post, сжатое до отрезка [low[u], post[u]]. Такие множества
+ * хранятся в кеше на CLOSURE_CACHE_SIZE источников с вытеснением самого
+ * давнего, так что запрос стоит не больше SEARCH_BUDGET рёбер и проверки
+ * бита; только первый трудный запрос из u платит за построение множества,
+ * O(число потомков u). Памяти требуется шесть int и два long на вершину, кеш - не больше
+ * CLOSURE_CACHE_SIZE * n бит (8 МБ при миллионе вершин), плюс два int[n]
+ * буфера обхода на каждый поток, выполнявший запросы.
+ *
+ * Индекс, построенный по Graph, подписывается на его изменения и при
+ * следующем запросе перестраивается, если изменение могло повлиять
+ * на достижимость. Добавление ребра u -> v, когда v уже достижима из u,
+ * индекс не сбрасывает.
+ */
+public final class ReachabilityIndex implements GraphListener {
+    // Меньшие пакеты запросов выполняются в текущем потоке
+    private static final int GRAIN = 4096;
+    // Сколько рёбер может просмотреть обход одного запроса до перехода к множеству потомков
+    private static final int SEARCH_BUDGET = 16384;
+    private static final int CLOSURE_CACHE_SIZE = 64;
+    // Число вершин-узлов, по одному биту маски на каждую
+    private static final int HUBS = Long.SIZE;
+
+    private final Graph graph;
+    private final ForkJoinPool pool;
+    // Метки текущего состояния графа или null, если граф изменился
+    private volatile Labels labels;
+    // Буфер обхода у каждого потока свой и пересоздаётся при смене меток
+    private final ThreadLocal<Search> searches = new ThreadLocal<>();
+
+    /**
+     * Строит индекс неизменяемого графа
+     *
+     * @param graph ациклический граф
+     * @throws CycleException если граф содержит цикл
+     */
+    public ReachabilityIndex(CsrGraph graph) {
+        this.graph = null;
+        this.pool = ForkJoinPool.commonPool();
+        this.labels = new Labels(graph);
+    }
+
+    /**
+     * Строит индекс и подписывается на изменения графа
+     *
+     * @param graph ациклический граф
+     * @throws CycleException если граф содержит цикл
+     */
+    public ReachabilityIndex(Graph graph) {
+        this.graph = graph;
+        this.pool = ForkJoinPool.commonPool();
+        this.labels = new Labels(CsrGraph.fromGraph(graph));
+        graph.addListener(this);
+    }
+
+    /**
+     * Отписывается от изменений графа
+     */
+    public void detach() {
+        if (graph != null) {
+            graph.removeListener(this);
+        }
+    }
+
+    /**
+     * @return true, если метки соответствуют текущему состоянию графа
+     */
+    public boolean isValid() {
+        return labels != null;
+    }
+
+    /**
+     * Проверяет, достижима ли вершина v из вершины u (вершина достижима из самой себя)
+     *
+     * @param u индекс начальной вершины
+     * @param v индекс конечной вершины
+     * @return true, если есть путь из u в v
+     * @throws CycleException если после изменений граф содержит цикл
+     */
+    public boolean reaches(int u, int v) {
+        return reaches(current(), u, v);
+    }
+
+    private boolean reaches(Labels current, int u, int v) {
+        return search(searches, current).reaches(u, v);
+    }
+
+    private static Search search(ThreadLocal<Search> searches, Labels labels) {
+        Search search = searches.get();
+        if (search == null || search.labels != labels) {
+            search = new Search(labels);
+            searches.set(search);
+        }
+        return search;
+    }
+
+    /**
+     * @param u начальная вершина
+     * @param v конечная вершина
+     * @return true, если есть путь из u в v
+     * @throws IllegalArgumentException если вершины нет в графе
+     * @throws CycleException если после изменений граф содержит цикл
+     */
+    public boolean reaches(Vertex u, Vertex v) {
+        return reaches(indexOf(u), indexOf(v));
+    }
+
+    /**
+     * Проверяет, что работы независимы: ни одна не обязана идти раньше другой
+     *
+     * @param u первая вершина
+     * @param v вторая вершина
+     * @return true, если вершины различны и ни одна не достижима из другой
+     * @throws IllegalArgumentException если вершины нет в графе
+     * @throws CycleException если после изменений граф содержит цикл
+     */
+    public boolean canRunConcurrently(Vertex u, Vertex v) {
+        int a = indexOf(u);
+        int b = indexOf(v);
+        return !reaches(a, b) && !reaches(b, a);
+    }
+
+    /**
+     * Отвечает на пакет запросов; пакет делится между потоками fork-join,
+     * у каждого из которых один буфер обхода на все его части пакета
+     *
+     * @param sources индексы начальных вершин
+     * @param targets индексы конечных вершин
+     * @return result[i] - достижима ли targets[i] из sources[i]
+     * @throws IllegalArgumentException если длины массивов различаются
+     * @throws CycleException если после изменений граф содержит цикл
+     */
+    public boolean[] reachesAll(int[] sources, int[] targets) {
+        if (sources.length != targets.length) {
+            throw new IllegalArgumentException("Количество начальных и конечных вершин должно совпадать");
+        }
+        boolean[] result = new boolean[sources.length];
+        BatchTask task = new BatchTask(current(), searches, sources, targets, result, 0, sources.length);
+        if (sources.length <= GRAIN) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return result;
+    }
+
+    @Override
+    public void vertexAdded(int vertex) {
+        labels = null;
+    }
+
+    @Override
+    public void edgeAdded(int source, int target) {
+        Labels current = labels;
+        // Ребро, дублирующее существующий путь, достижимость не меняет
+        if (current == null || !reaches(current, source, target)) {
+            labels = null;
+        }
+    }
+
+    @Override
+    public void edgeRemoved(int source, int target) {
+        labels = null;
+    }
+
+    private Labels current() {
+        Labels current = labels;
+        if (current == null) {
+            synchronized (this) {
+                current = labels;
+                if (current == null) {
+                    current = new Labels(CsrGraph.fromGraph(graph));
+                    labels = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private int indexOf(Vertex vertex) {
+        int v = graph != null ? graph.indexOf(vertex) : current().csr.indexOf(vertex);
+        if (v < 0) {
+            throw new IllegalArgumentException("Вершина отсутствует в графе: " + vertex.getName());
+        }
+        return v;
+    }
+
+    /**
+     * Метки вершин одного состояния графа
+     */
+    private static final class Labels {
+        final CsrGraph csr;
+        // Ранги в двух топологических порядках
+        final int[] first;
+        final int[] second;
+        // Длина самого длинного пути до вершины
+        final int[] level;
+        // Номер выхода из вершины при обходе в глубину
+        final int[] post;
+        // Наименьший post в поддереве остовного леса и среди всех потомков
+        final int[] treeLow;
+        final int[] low;
+        // Биты узлов, достижимых из вершины, и узлов, из которых достижима вершина
+        final long[] hubsBelow;
+        final long[] hubsAbove;
+        // Потомки источников, для которых не хватило бюджета обхода: бит post[v] - low[u]
+        private final Map<Integer, BitSet> closures = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BitSet> eldest) {
+                return size() > CLOSURE_CACHE_SIZE;
+            }
+        };
+
+        Labels(CsrGraph csr) {
+            this.csr = csr;
+            int n = csr.vertexCount();
+            int[] order = sortedOrder(csr, null);
+            first = ranks(order);
+            // Второй порядок среди готовых вершин берёт самую позднюю в первом порядке,
+            // поэтому несравнимые вершины чаще оказываются в разном порядке
+            int[] firstRank = first;
+            second = ranks(sortedOrder(csr, PriorityPolicy.byLong(v -> firstRank[v]).reversed()));
+
+            level = new int[n];
+            for (int v : order) {
+                for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                    int w = csr.target(e);
+                    level[w] = Math.max(level[w], level[v] + 1);
+                }
+            }
+
+            post = new int[n];
+            treeLow = new int[n];
+            low = new int[n];
+            numberDepthFirst(order);
+            for (int i = n - 1; i >= 0; i--) {
+                int v = order[i];
+                int min = treeLow[v];
+                for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                    min = Math.min(min, low[csr.target(e)]);
+                }
+                low[v] = min;
+            }
+
+            hubsBelow = new long[n];
+            hubsAbove = new long[n];
+            int[] hubs = selectHubs();
+            for (int i = 0; i < hubs.length; i++) {
+                hubsBelow[hubs[i]] = 1L << i;
+                hubsAbove[hubs[i]] = 1L << i;
+            }
+            for (int v : order) {
+                for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                    hubsAbove[csr.target(e)] |= hubsAbove[v];
+                }
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                int v = order[i];
+                long mask = hubsBelow[v];
+                for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+                    mask |= hubsBelow[csr.target(e)];
+                }
+                hubsBelow[v] = mask;
+            }
+        }
+
+        // Не больше HUBS вершин с наибольшим произведением (степень входа + 1) * (степень выхода + 1)
+        private int[] selectHubs() {
+            int n = csr.vertexCount();
+            int[] inDegree = new int[n];
+            for (int e = 0; e < csr.edgeCount(); e++) {
+                inDegree[csr.target(e)]++;
+            }
+            int count = Math.min(HUBS, n);
+            int[] hubs = new int[count];
+            long[] score = new long[count];
+            int weakest = 0;
+            for (int v = 0; v < n; v++) {
+                long s = (long) (inDegree[v] + 1) * (csr.outDegree(v) + 1);
+                if (v < count) {
+                    hubs[v] = v;
+                    score[v] = s;
+                    if (s < score[weakest]) {
+                        weakest = v;
+                    }
+                } else if (s > score[weakest]) {
+                    hubs[weakest] = v;
+                    score[weakest] = s;
+                    for (int i = 0; i < count; i++) {
+                        if (score[i] < score[weakest]) {
+                            weakest = i;
+                        }
+                    }
+                }
+            }
+            return hubs;
+        }
+
+        private static int[] sortedOrder(CsrGraph csr, PriorityPolicy policy) {
+            TopologicalSorter sorter = new TopologicalSorter(csr, policy);
+            int[] order = new int[csr.vertexCount()];
+            int count = 0;
+            while (sorter.hasNext()) {
+                order[count++] = sorter.nextIndex();
+            }
+            sorter.requireComplete();
+            return order;
+        }
+
+        private static int[] ranks(int[] order) {
+            int[] rank = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                rank[order[i]] = i;
+            }
+            return rank;
+        }
+
+        // Итеративный обход в глубину из вершин в топологическом порядке
+        private void numberDepthFirst(int[] order) {
+            int n = csr.vertexCount();
+            boolean[] visited = new boolean[n];
+            int[] stack = new int[n];
+            int[] cursor = new int[n];
+            int counter = 0;
+            for (int root : order) {
+                if (visited[root]) {
+                    continue;
+                }
+                int depth = 0;
+                stack[0] = root;
+                visited[root] = true;
+                cursor[root] = csr.firstEdge(root);
+                treeLow[root] = Integer.MAX_VALUE;
+                while (depth >= 0) {
+                    int v = stack[depth];
+                    if (cursor[v] < csr.lastEdge(v)) {
+                        int w = csr.target(cursor[v]++);
+                        if (!visited[w]) {
+                            visited[w] = true;
+                            cursor[w] = csr.firstEdge(w);
+                            treeLow[w] = Integer.MAX_VALUE;
+                            stack[++depth] = w;
+                        }
+                        continue;
+                    }
+                    post[v] = counter++;
+                    treeLow[v] = Math.min(treeLow[v], post[v]);
+                    if (--depth >= 0) {
+                        int parent = stack[depth];
+                        treeLow[parent] = Math.min(treeLow[parent], treeLow[v]);
+                    }
+                }
+            }
+        }
+
+        // Метки не исключают путь из u в v
+        boolean mayReach(int u, int v) {
+            return first[u] < first[v] && second[u] < second[v] && level[u] < level[v]
+                && post[v] >= low[u] && post[v] < post[u];
+        }
+
+        // Путь из u в v проходит через один из узлов
+        boolean hubReaches(int u, int v) {
+            return (hubsBelow[u] & hubsAbove[v]) != 0;
+        }
+
+        // v лежит в поддереве u остовного леса
+        boolean treeReaches(int u, int v) {
+            return post[v] >= treeLow[u] && post[v] <= post[u];
+        }
+
+        BitSet cachedClosure(int u) {
+            synchronized (closures) {
+                return closures.get(u);
+            }
+        }
+
+        void cacheClosure(int u, BitSet descendants) {
+            synchronized (closures) {
+                closures.put(u, descendants);
+            }
+        }
+    }
+
+    /**
+     * Обход в глубину с отсечением по меткам. Пометки посещения
+     * сбрасываются сменой эпохи, поэтому буфер переиспользуется между запросами.
+     */
+    private static final class Search {
+        final Labels labels;
+        private int[] mark;
+        private int[] stack;
+        private int epoch;
+
+        Search(Labels labels) {
+            this.labels = labels;
+        }
+
+        boolean reaches(int u, int v) {
+            CsrGraph csr = labels.csr;
+            int n = csr.vertexCount();
+            if (u < 0 || u >= n || v < 0 || v >= n) {
+                throw new IndexOutOfBoundsException("Индекс вершины вне графа: " + (u < 0 || u >= n ? u : v));
+            }
+            if (u == v || labels.treeReaches(u, v)) {
+                return true;
+            }
+            if (!labels.mayReach(u, v)) {
+                return false;
+            }
+            if (labels.hubReaches(u, v)) {
+                return true;
+            }
+
+            if (mark == null) {
+                mark = new int[n];
+                stack = new int[n];
+            }
+            if (++epoch == 0) {
+                Arrays.fill(mark, 0);
+                epoch = 1;
+            }
+            int size = 0;
+            stack[size++] = u;
+            mark[u] = epoch;
+            int budget = SEARCH_BUDGET;
+            while (size > 0) {
+                int w = stack[--size];
+                budget -= csr.outDegree(w);
+                if (budget < 0) {
+                    // Метки уже поместили post[v] в отрезок [low[u], post[u])
+                    return descendants(u).get(labels.post[v] - labels.low[u]);
+                }
+                for (int e = csr.firstEdge(w); e < csr.lastEdge(w); e++) {
+                    int x = csr.target(e);
+                    if (mark[x] == epoch) {
+                        continue;
+                    }
+                    mark[x] = epoch;
+                    if (x == v || labels.treeReaches(x, v) || labels.hubReaches(x, v)) {
+                        return true;
+                    }
+                    if (labels.mayReach(x, v)) {
+                        stack[size++] = x;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Все потомки u без отсечения по меткам; результат кладётся в кеш меток
+        private BitSet descendants(int u) {
+            BitSet cached = labels.cachedClosure(u);
+            if (cached != null) {
+                return cached;
+            }
+            CsrGraph csr = labels.csr;
+            int[] post = labels.post;
+            int base = labels.low[u];
+            BitSet seen = new BitSet(post[u] - base + 1);
+            int size = 0;
+            stack[size++] = u;
+            seen.set(post[u] - base);
+            while (size > 0) {
+                int w = stack[--size];
+                for (int e = csr.firstEdge(w); e < csr.lastEdge(w); e++) {
+                    int x = csr.target(e);
+                    if (!seen.get(post[x] - base)) {
+                        seen.set(post[x] - base);
+                        stack[size++] = x;
+                    }
+                }
+            }
+            labels.cacheClosure(u, seen);
+            return seen;
+        }
+    }
+
+    /**
+     * Обработка отрезка пакета запросов
+     */
+    private static final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Labels labels;
+        private final transient ThreadLocal<Search> searches;
+        private final int[] sources;
+        private final int[] targets;
+        private final boolean[] result;
+        private final int from;
+        private final int to;
+
+        BatchTask(Labels labels, ThreadLocal<Search> searches, int[] sources, int[] targets,
+                  boolean[] result, int from, int to) {
+            this.labels = labels;
+            this.searches = searches;
+            this.sources = sources;
+            this.targets = targets;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BatchTask(labels, searches, sources, targets, result, from, mid),
+                          new BatchTask(labels, searches, sources, targets, result, mid, to));
+                return;
+            }
+            Search search = search(searches, labels);
+            for (int i = from; i < to; i++) {
+                result[i] = search.reaches(sources[i], targets[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.PrintStream;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Записывающая реализация Metrics.
+ *
+ * Каждый замер отправляется событием JDK Flight Recorder (категория
+ * "Topological Sorting"), так что его видно в записи JFR рядом с паузами GC
+ * и профилем потоков; если запись JFR не идёт, событие не создаётся.
+ * Одновременно замеры суммируются, и сводку можно вывести в консоль
+ * или показать в интерфейсе.
+ */
+public final class RecordingMetrics implements Metrics {
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private long parseCount;
+    private long parsedChars;
+    private long parseNanos;
+    private int lastVertices;
+    private int lastEdges;
+
+    private long mapCount;
+    private long mappedBytes;
+    private long mapNanos;
+
+    private long initCount;
+    private long initNanos;
+
+    private long sortCount;
+    private TopologicalSorter.Stats lastSort;
+
+    private long renderCount;
+    private long renderNanos;
+    private long maxRenderNanos;
+    private int lastRenderedVertices;
+    private int lastRenderedEdges;
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public synchronized void graphParsed(long chars, long nanos, int vertices, int edges) {
+        parseCount++;
+        parsedChars += chars;
+        parseNanos += nanos;
+        lastVertices = vertices;
+        lastEdges = edges;
+
+        ParseEvent event = new ParseEvent();
+        if (event.shouldCommit()) {
+            event.chars = chars;
+            event.parseTime = nanos;
+            event.charsPerSecond = perSecond(chars, nanos);
+            event.vertices = vertices;
+            event.edges = edges;
+            event.commit();
+        }
+    }
+
+    @Override
+    public synchronized void graphMapped(long bytes, long nanos, int vertices, int edges) {
+        mapCount++;
+        mappedBytes += bytes;
+        mapNanos += nanos;
+        lastVertices = vertices;
+        lastEdges = edges;
+
+        MapEvent event = new MapEvent();
+        if (event.shouldCommit()) {
+            event.bytes = bytes;
+            event.mapTime = nanos;
+            event.bytesPerSecond = perSecond(bytes, nanos);
+            event.vertices = vertices;
+            event.edges = edges;
+            event.commit();
+        }
+    }
+
+    @Override
+    public synchronized void sorterInitialized(int vertices, int edges, long nanos) {
+        initCount++;
+        initNanos += nanos;
+
+        SorterInitEvent event = new SorterInitEvent();
+        if (event.shouldCommit()) {
+            event.vertices = vertices;
+            event.edges = edges;
+            event.inDegreeTime = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public synchronized void sortFinished(TopologicalSorter.Stats stats) {
+        sortCount++;
+        lastSort = stats;
+
+        SortEvent event = new SortEvent();
+        if (event.shouldCommit()) {
+            event.steps = stats.steps();
+            event.undoneSteps = stats.undoneSteps();
+            event.edgesRelaxed = stats.edgesRelaxed();
+            event.maxQueued = stats.maxQueued();
+            event.journalBytes = stats.journalBytes();
+            event.commit();
+        }
+    }
+
+    @Override
+    public synchronized void graphRendered(int vertices, int edges, boolean aggregated, long nanos) {
+        renderCount++;
+        renderNanos += nanos;
+        maxRenderNanos = Math.max(maxRenderNanos, nanos);
+        lastRenderedVertices = vertices;
+        lastRenderedEdges = edges;
+
+        RenderEvent event = new RenderEvent();
+        if (event.shouldCommit()) {
+            event.vertices = vertices;
+            event.edges = edges;
+            event.aggregated = aggregated;
+            event.renderTime = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Сбрасывает накопленные суммы
+     */
+    public synchronized void reset() {
+        parseCount = parsedChars = parseNanos = 0;
+        lastVertices = lastEdges = 0;
+        mapCount = mappedBytes = mapNanos = 0;
+        initCount = initNanos = 0;
+        sortCount = 0;
+        lastSort = null;
+        renderCount = renderNanos = maxRenderNanos = 0;
+        lastRenderedVertices = lastRenderedEdges = 0;
+    }
+
+    /**
+     * @return сводка замеров в несколько строк
+     */
+    public synchronized String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("parse: %d graphs, %.1f M chars, %.1f ms, %.1f M chars/s%n",
+            parseCount, parsedChars / 1e6, parseNanos / NANOS_PER_MILLI, perSecond(parsedChars, parseNanos) / 1e6));
+        out.append(String.format("map .graphb: %d graphs, %.1f MB, %.1f ms, %.1f MB/s%n",
+            mapCount, mappedBytes / 1e6, mapNanos / NANOS_PER_MILLI, perSecond(mappedBytes, mapNanos) / 1e6));
+        out.append(String.format("last graph: %d vertices / %d edges%n", lastVertices, lastEdges));
+        out.append(String.format("sorter init: %d sorters, in-degree time %.1f ms%n",
+            initCount, initNanos / NANOS_PER_MILLI));
+        if (lastSort != null) {
+            out.append(String.format("sort: %d finished, last %s%n", sortCount, lastSort));
+        } else {
+            out.append(String.format("sort: %d finished%n", sortCount));
+        }
+        out.append(String.format("render: %d redraws, avg %.2f ms, max %.2f ms, last %d vertices / %d edges%n",
+            renderCount, renderCount > 0 ? renderNanos / NANOS_PER_MILLI / renderCount : 0.0,
+            maxRenderNanos / NANOS_PER_MILLI, lastRenderedVertices, lastRenderedEdges));
+        return out.toString();
+    }
+
+    /**
+     * Выводит сводку замеров
+     *
+     * @param out поток вывода
+     */
+    public void dump(PrintStream out) {
+        out.print(summary());
+        out.flush();
+    }
+
+    private static long perSecond(long amount, long nanos) {
+        return nanos > 0 ? (long) (amount * NANOS_PER_SECOND / nanos) : 0;
+    }
+
+    @Name("topo.GraphParsed")
+    @Label("Graph Parsed")
+    @Category("Topological Sorting")
+    static final class ParseEvent extends Event {
+        @Label("Characters")
+        long chars;
+
+        @Label("Parse Time")
+        @Timespan
+        long parseTime;
+
+        @Label("Characters per Second")
+        long charsPerSecond;
+
+        @Label("Vertices")
+        int vertices;
+
+        @Label("Edges")
+        int edges;
+    }
+
+    @Name("topo.GraphMapped")
+    @Label("Binary Graph Mapped")
+    @Category("Topological Sorting")
+    static final class MapEvent extends Event {
+        @Label("File Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Map Time")
+        @Timespan
+        long mapTime;
+
+        @Label("Throughput")
+        @DataAmount(DataAmount.BYTES)
+        @Frequency
+        long bytesPerSecond;
+
+        @Label("Vertices")
+        int vertices;
+
+        @Label("Edges")
+        int edges;
+    }
+
+    @Name("topo.SorterInitialized")
+    @Label("Sorter Initialized")
+    @Category("Topological Sorting")
+    static final class SorterInitEvent extends Event {
+        @Label("Vertices")
+        int vertices;
+
+        @Label("Edges")
+        int edges;
+
+        @Label("In-degree Time")
+        @Timespan
+        long inDegreeTime;
+    }
+
+    @Name("topo.SortFinished")
+    @Label("Sort Finished")
+    @Category("Topological Sorting")
+    static final class SortEvent extends Event {
+        @Label("Steps")
+        long steps;
+
+        @Label("Undone Steps")
+        long undoneSteps;
+
+        @Label("Edges Relaxed")
+        long edgesRelaxed;
+
+        @Label("Queue High-water Mark")
+        int maxQueued;
+
+        @Label("Undo Journal")
+        @DataAmount
+        long journalBytes;
+    }
+
+    @Name("topo.GraphRendered")
+    @Label("Graph Rendered")
+    @Category("Topological Sorting")
+    static final class RenderEvent extends Event {
+        @Label("Vertices")
+        int vertices;
+
+        @Label("Edges")
+        int edges;
+
+        @Label("Aggregated")
+        boolean aggregated;
+
+        @Label("Render Time")
+        @Timespan
+        long renderTime;
+    }
+}
@@ -0,0 +1,293 @@
+import java.util.function.IntConsumer;
+
+/**
+ * Равномерная сетка над координатами вершин графа для выборки по прямоугольнику
+ * и поиска вершины под курсором.
+ *
+ * Вершины раскладываются по ячейкам сортировкой подсчётом, так что ячейка - это
+ * непрерывный отрезок массива индексов.
+ *
+ * Рёбра лежат в иерархии сеток: на уровне k ячейка в 2^k раз шире ячейки
+ * вершин. Ребро хранится один раз - на самом мелком уровне, где его
+ * ограничивающий прямоугольник захватывает не больше LEVEL_SPAN ячеек
+ * после ячейки левого верхнего угла, в этой угловой ячейке. Запрос на каждом
+ * уровне расширяется на наибольший размах рёбер этого уровня, поэтому длинное
+ * ребро просматривается, только если оно проходит рядом с прямоугольником
+ * запроса, а стоимость запроса зависит от его площади, а не от числа рёбер.
+ */
+public final class SpatialIndex {
+    // Среднее число вершин в ячейке и ограничение размера сетки
+    private static final int VERTICES_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_SIDE = 4096;
+    private static final int LEVEL_SPAN = 2;
+
+    /**
+     * Получатель рёбер, найденных запросом
+     */
+    @FunctionalInterface
+    public interface EdgeVisitor {
+        void visit(int source, int target);
+    }
+
+    private final CsrGraph graph;
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int columns;
+    private final int rows;
+
+    private final int[] vertexCellStart;
+    private final int[] vertexItems;
+
+    // Ячейки всех уровней подряд: ячейки уровня k начинаются с levelStart[k]
+    private final int levels;
+    private final int[] levelStart;
+    private final int[] edgeCellStart;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+    // Наибольший размах рёбер уровня в его ячейках
+    private final int[] maxSpanX;
+    private final int[] maxSpanY;
+
+    /**
+     * Строит индекс по координатам вершин графа за O(V + E)
+     *
+     * @param graph граф
+     */
+    public SpatialIndex(CsrGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+
+        int loX = Integer.MAX_VALUE, loY = Integer.MAX_VALUE;
+        int hiX = Integer.MIN_VALUE, hiY = Integer.MIN_VALUE;
+        for (int v = 0; v < n; v++) {
+            loX = Math.min(loX, graph.x(v));
+            loY = Math.min(loY, graph.y(v));
+            hiX = Math.max(hiX, graph.x(v));
+            hiY = Math.max(hiY, graph.y(v));
+        }
+        if (n == 0) {
+            loX = loY = hiX = hiY = 0;
+        }
+        minX = loX;
+        minY = loY;
+        maxX = hiX;
+        maxY = hiY;
+
+        int side = (int) Math.ceil(Math.sqrt(Math.max(1, n / VERTICES_PER_CELL)));
+        side = Math.max(1, Math.min(side, MAX_CELLS_PER_SIDE));
+        columns = side;
+        rows = side;
+        cellWidth = Math.max(1.0, (double) (maxX - minX + 1) / columns);
+        cellHeight = Math.max(1.0, (double) (maxY - minY + 1) / rows);
+
+        // Вершины: подсчёт по ячейкам, затем раскладка
+        int cells = columns * rows;
+        vertexCellStart = new int[cells + 1];
+        int[] vertexCell = new int[n];
+        for (int v = 0; v < n; v++) {
+            vertexCell[v] = cellOf(column(graph.x(v)), row(graph.y(v)));
+            vertexCellStart[vertexCell[v] + 1]++;
+        }
+        prefixSum(vertexCellStart);
+        vertexItems = new int[n];
+        int[] fill = vertexCellStart.clone();
+        for (int v = 0; v < n; v++) {
+            vertexItems[fill[vertexCell[v]]++] = v;
+        }
+
+        // Рёбра: в угловую ячейку самого мелкого уровня, где размах не больше LEVEL_SPAN
+        int levelCount = 1;
+        while (levelColumns(levelCount - 1) > LEVEL_SPAN + 1 || levelRows(levelCount - 1) > LEVEL_SPAN + 1) {
+            levelCount++;
+        }
+        levels = levelCount;
+        levelStart = new int[levels + 1];
+        for (int k = 0; k < levels; k++) {
+            levelStart[k + 1] = levelStart[k] + levelColumns(k) * levelRows(k);
+        }
+        maxSpanX = new int[levels];
+        maxSpanY = new int[levels];
+
+        int m = graph.edgeCount();
+        int[] edgeCell = new int[m];
+        edgeCellStart = new int[levelStart[levels] + 1];
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                int w = graph.target(e);
+                int c0 = Math.min(column(graph.x(v)), column(graph.x(w)));
+                int c1 = Math.max(column(graph.x(v)), column(graph.x(w)));
+                int r0 = Math.min(row(graph.y(v)), row(graph.y(w)));
+                int r1 = Math.max(row(graph.y(v)), row(graph.y(w)));
+                int k = 0;
+                while ((c1 >> k) - (c0 >> k) > LEVEL_SPAN || (r1 >> k) - (r0 >> k) > LEVEL_SPAN) {
+                    k++;
+                }
+                edgeCell[e] = levelStart[k] + (r0 >> k) * levelColumns(k) + (c0 >> k);
+                edgeCellStart[edgeCell[e] + 1]++;
+                maxSpanX[k] = Math.max(maxSpanX[k], (c1 >> k) - (c0 >> k));
+                maxSpanY[k] = Math.max(maxSpanY[k], (r1 >> k) - (r0 >> k));
+            }
+        }
+        prefixSum(edgeCellStart);
+
+        edgeSources = new int[m];
+        edgeTargets = new int[m];
+        fill = edgeCellStart.clone();
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                int slot = fill[edgeCell[e]]++;
+                edgeSources[slot] = v;
+                edgeTargets[slot] = graph.target(e);
+            }
+        }
+    }
+
+    public int minX() {
+        return minX;
+    }
+
+    public int minY() {
+        return minY;
+    }
+
+    public int maxX() {
+        return maxX;
+    }
+
+    public int maxY() {
+        return maxY;
+    }
+
+    /**
+     * Перебирает вершины, лежащие в прямоугольнике
+     *
+     * @param x0 левая граница
+     * @param y0 верхняя граница
+     * @param x1 правая граница
+     * @param y1 нижняя граница
+     * @param action обработчик индекса вершины
+     */
+    public void forEachVertex(double x0, double y0, double x1, double y1, IntConsumer action) {
+        int c0 = clampColumn(x0), c1 = clampColumn(x1);
+        int r0 = clampRow(y0), r1 = clampRow(y1);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = cellOf(c, r);
+                for (int i = vertexCellStart[cell]; i < vertexCellStart[cell + 1]; i++) {
+                    int v = vertexItems[i];
+                    int x = graph.x(v);
+                    int y = graph.y(v);
+                    if (x >= x0 && x <= x1 && y >= y0 && y <= y1) {
+                        action.accept(v);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Перебирает рёбра, ограничивающий прямоугольник которых пересекает заданный
+     *
+     * @param x0 левая граница
+     * @param y0 верхняя граница
+     * @param x1 правая граница
+     * @param y1 нижняя граница
+     * @param visitor обработчик ребра
+     */
+    public void forEachEdge(double x0, double y0, double x1, double y1, EdgeVisitor visitor) {
+        int qc0 = clampColumn(x0), qc1 = clampColumn(x1);
+        int qr0 = clampRow(y0), qr1 = clampRow(y1);
+        for (int k = 0; k < levels; k++) {
+            int columnsK = levelColumns(k);
+            int c0 = Math.max(0, (qc0 >> k) - maxSpanX[k]), c1 = qc1 >> k;
+            int r0 = Math.max(0, (qr0 >> k) - maxSpanY[k]), r1 = qr1 >> k;
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int cell = levelStart[k] + r * columnsK + c;
+                    for (int i = edgeCellStart[cell]; i < edgeCellStart[cell + 1]; i++) {
+                        visitIfIntersects(edgeSources[i], edgeTargets[i], x0, y0, x1, y1, visitor);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ищет ближайшую к точке вершину на расстоянии не больше radius
+     *
+     * @param x координата X точки
+     * @param y координата Y точки
+     * @param radius радиус поиска
+     * @return индекс вершины или -1, если рядом вершин нет
+     */
+    public int nearestVertex(double x, double y, double radius) {
+        int best = -1;
+        double bestDistance = radius * radius;
+        int c0 = clampColumn(x - radius), c1 = clampColumn(x + radius);
+        int r0 = clampRow(y - radius), r1 = clampRow(y + radius);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = cellOf(c, r);
+                for (int i = vertexCellStart[cell]; i < vertexCellStart[cell + 1]; i++) {
+                    int v = vertexItems[i];
+                    double dx = graph.x(v) - x;
+                    double dy = graph.y(v) - y;
+                    double distance = dx * dx + dy * dy;
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        best = v;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void visitIfIntersects(int s, int t, double x0, double y0, double x1, double y1,
+                                   EdgeVisitor visitor) {
+        int sx = graph.x(s), sy = graph.y(s);
+        int tx = graph.x(t), ty = graph.y(t);
+        if (Math.max(sx, tx) >= x0 && Math.min(sx, tx) <= x1
+                && Math.max(sy, ty) >= y0 && Math.min(sy, ty) <= y1) {
+            visitor.visit(s, t);
+        }
+    }
+
+    private int column(int x) {
+        return Math.min(columns - 1, (int) ((x - minX) / cellWidth));
+    }
+
+    private int row(int y) {
+        return Math.min(rows - 1, (int) ((y - minY) / cellHeight));
+    }
+
+    private int clampColumn(double x) {
+        return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - minX) / cellWidth)));
+    }
+
+    private int clampRow(double y) {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - minY) / cellHeight)));
+    }
+
+    private int levelColumns(int level) {
+        return ((columns - 1) >> level) + 1;
+    }
+
+    private int levelRows(int level) {
+        return ((rows - 1) >> level) + 1;
+    }
+
+    private int cellOf(int column, int row) {
+        return row * columns + column;
+    }
+
+    private static void prefixSum(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+}
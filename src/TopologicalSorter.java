@@ -3,45 +3,120 @@ import java.util.*;
 /**
  * Класс, выполняющий топологическую сортировку графа с возможностью
  * пошагового прохождения вперед и назад.
+ * Сортировка работает над CSR-представлением графа с целочисленными
+ * индексами вершин; объекты Vertex нужны только для API итератора.
+ * Каждая вершина попадает в очередь не более одного раза, поэтому результат
+ * и очередь занимают один массив: шаг вперёд и назад не выделяют память.
+ *
+ * Порядок извлечения однозначен, поэтому степени входа и очередь описывают
+ * только границу frontier - самый дальний выполненный шаг. Шаги назад и повторные
+ * шаги вперёд до границы лишь двигают позицию head и пересчитывают число
+ * готовых вершин по журналу addedCount за O(1). Каждые CHECKPOINT_INTERVAL шагов
+ * это число запоминается, так что seek переходит к любой пройденной позиции
+ * за O(CHECKPOINT_INTERVAL), а за границей - за O(полустепеней исхода) новых шагов.
+ *
+ * С политикой PriorityPolicy готовые вершины лежат не в очереди, а в d-арной куче,
+ * и каждый новый шаг стоит O(log n) на каждую вершину, вошедшую в кучу или покинувшую её.
  */
 public class TopologicalSorter implements ExtendedIterator<Vertex> {
+    // Контрольные точки журнала: 4 байта на каждые 256 шагов
+    private static final int CHECKPOINT_INTERVAL = 256;
 
-    private final Graph graph;
-    private final Map<Vertex, Integer> inDegree;
-    private final Deque<Vertex> queue;
-    private final List<Vertex> result;
-    private final Deque<List<Vertex>> addedToQueueHistory;
+    private final IConstGraph graph;
+    private final CsrGraph csr;
+    // Степени входа на границе frontier
+    private final int[] inDegree;
+    // order[0..frontier) - вершины в порядке извлечения, order[0..head) - отсортированный префикс;
+    // в режиме FIFO order[frontier..tail) - очередь
+    private final int[] order;
+    // enqueued[0..tail) - вершины в порядке попадания в очередь; в режиме FIFO это массив order
+    private final int[] enqueued;
+    private int head;
+    private int frontier;
+    private int tail;
+    // Сколько вершин отсортировано или ждёт в очереди на позиции head
+    private int queued;
+    // addedCount[i] - сколько вершин попало в очередь на шаге i (журнал)
+    private final int[] addedCount;
+    // checkpoints[c] - значение queued на позиции c * CHECKPOINT_INTERVAL
+    private final int[] checkpoints;
+    // Готовые вершины при заданной политике; null - очередь FIFO в order[frontier..tail)
+    private final IndexedIntHeap ready;
+
+    // Счётчики для Metrics: несколько сложений на шаг
+    private long steps;
+    private long undoneSteps;
+    private long edgesRelaxed;
+    private int maxQueued;
+    private boolean finishReported;
+
+    /**
+     * Счётчики работы сортировщика
+     *
+     * @param steps выполнено шагов вперёд
+     * @param undoneSteps выполнено шагов назад
+     * @param edgesRelaxed просмотрено рёбер при шагах вперёд
+     * @param maxQueued наибольшее число готовых вершин, ждавших в очереди
+     * @param journalBytes память журнала и контрольных точек
+     */
+    public record Stats(long steps, long undoneSteps, long edgesRelaxed, int maxQueued, long journalBytes) {}
 
     /**
      * Создает объект сортировщика для заданного графа.
      * При создании вычисляет степени входа всех вершин
-     * и формирует очередь вершин с нулевой степенью.
+     * и формирует очередь вершин с нулевой степенью
+     * в порядке их следования в графе.
+     *
+     * @param graph граф, который будет отсортирован
+     */
+    public TopologicalSorter(IConstGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Создает сортировщик, выбирающий среди готовых вершин по заданной политике.
+     * Результат не зависит от порядка, в котором вершины становятся готовыми,
+     * и совпадает при повторных запусках.
      *
      * @param graph граф, который будет отсортирован
+     * @param policy правило выбора следующей вершины или null для очереди FIFO
      */
-    public TopologicalSorter(Graph graph) {
+    public TopologicalSorter(IConstGraph graph, PriorityPolicy policy) {
         this.graph = graph;
-        this.inDegree = new HashMap<>();
-        this.queue = new ArrayDeque<>();
-        this.result = new ArrayList<>();
-        this.addedToQueueHistory = new ArrayDeque<>();
+        this.csr = CsrGraph.fromGraph(graph);
+        int n = csr.vertexCount();
+        this.inDegree = new int[n];
+        this.order = new int[n];
+        this.addedCount = new int[n];
+        this.checkpoints = new int[n / CHECKPOINT_INTERVAL + 1];
 
-        for (Vertex v : graph.getVertices()) {
-            inDegree.put(v, 0);
+        if (policy == null) {
+            this.ready = null;
+            this.enqueued = order;
+        } else {
+            long[] keys = policy.keys(csr);
+            if (keys.length != csr.vertexCount()) {
+                throw new IllegalArgumentException("Политика вернула " + keys.length
+                    + " ключей для " + csr.vertexCount() + " вершин");
+            }
+            this.ready = new IndexedIntHeap(keys);
+            this.enqueued = new int[n];
         }
 
-        for (Vertex v : graph.getVertices()) {
-            for (Vertex u : v.getNeighbors()) {
-                inDegree.put(u, inDegree.get(u) + 1);
-            }
+        long start = System.nanoTime();
+        for (int e = 0; e < csr.edgeCount(); e++) {
+            inDegree[csr.target(e)]++;
         }
 
-        for (Map.Entry<Vertex, Integer> entry : inDegree.entrySet()) {
-            if (entry.getValue() == 0) {
-                queue.addLast(entry.getKey());
+        for (int v = 0; v < inDegree.length; v++) {
+            if (inDegree[v] == 0) {
+                enqueue(v);
             }
         }
-
+        queued = tail;
+        checkpoints[0] = tail;
+        maxQueued = tail;
+        Metrics.get().sorterInitialized(csr.vertexCount(), csr.edgeCount(), System.nanoTime() - start);
     }
 
     /**
@@ -53,6 +128,15 @@ public class TopologicalSorter implements ExtendedIterator<Vertex> {
         return graph;
     }
 
+    /**
+     * Возвращает CSR-представление, над которым работает сортировщик.
+     *
+     * @return CSR-граф
+     */
+    public CsrGraph getCsrGraph() {
+        return csr;
+    }
+
     /**
      * Проверяет, остались ли ещё вершины, которые можно извлечь из очереди.
      *
@@ -60,7 +144,7 @@ public class TopologicalSorter implements ExtendedIterator<Vertex> {
      */
     @Override
     public boolean hasNext() {
-        return !queue.isEmpty();
+        return queued > head;
     }
 
     /**
@@ -73,6 +157,16 @@ public class TopologicalSorter implements ExtendedIterator<Vertex> {
      */
     @Override
     public Vertex next() throws NoSuchElementException {
+        return csr.vertexAt(nextIndex());
+    }
+
+    /**
+     * Выполняет следующий шаг сортировки, не создавая объектов Vertex.
+     *
+     * @return индекс вершины, обработанной на этом шаге
+     * @throws NoSuchElementException если больше нет элементов
+     */
+    public int nextIndex() throws NoSuchElementException {
         if (!hasNext()) {
             throw new NoSuchElementException("No more elements");
         }
@@ -81,38 +175,73 @@ public class TopologicalSorter implements ExtendedIterator<Vertex> {
 
     /**
      * Реализует шаг вперед в сортировке.
-     * Обновляет очередь и историю.
+     * Обновляет очередь и журнал отката.
      *
-     * @return вершина, извлечённая на этом шаге
+     * @return индекс вершины, извлечённой на этом шаге
      */
-    private Vertex iterateNextStep() {
-        Vertex v = queue.removeFirst();
-        result.add(v);
+    private int iterateNextStep() {
+        steps++;
+        if (head < frontier) {
+            // Шаг уже выполнялся: вершина и число новых готовых вершин известны из журнала
+            queued += addedCount[head];
+            return order[head++];
+        }
+
+        int step = head;
+        int v = ready == null ? order[head] : ready.pop();
+        order[head++] = v;
 
-        List<Vertex> addedNow = new ArrayList<>();
-        for (Vertex neigh : v.getNeighbors()) {
-            int deg = inDegree.get(neigh) - 1;
-            inDegree.put(neigh, deg);
-            if (deg == 0) {
-                queue.addLast(neigh);
-                addedNow.add(neigh);
+        int before = tail;
+        for (int e = csr.firstEdge(v); e < csr.lastEdge(v); e++) {
+            int neigh = csr.target(e);
+            if (--inDegree[neigh] == 0) {
+                enqueue(neigh);
             }
         }
-        addedToQueueHistory.push(addedNow);
+        addedCount[step] = tail - before;
+        frontier = head;
+        queued = tail;
+        if (head % CHECKPOINT_INTERVAL == 0) {
+            checkpoints[head / CHECKPOINT_INTERVAL] = queued;
+        }
+
+        edgesRelaxed += csr.outDegree(v);
+        maxQueued = Math.max(maxQueued, tail - head);
+        if (!finishReported && !hasNext()) {
+            finishReported = true;
+            Metrics.get().sortFinished(stats());
+        }
         return v;
     }
 
+    private void enqueue(int v) {
+        if (ready != null) {
+            ready.push(v);
+        }
+        enqueued[tail++] = v;
+    }
+
     /**
      * Выполняет шаг назад.
-     * Восстанавливает вершину обратно в очередь,
-     * возвращает степень входа её соседей.
+     * Возвращает вершину обратно в очередь и убирает из неё
+     * соседей, которые стали готовыми на этом шаге.
      *
      * @return вершина, возвращённая на шаг назад
      * @throws NoSuchElementException если нечего откатывать
      */
     @Override
     public Vertex prev() throws NoSuchElementException {
-        if (result.isEmpty()) {
+        return csr.vertexAt(prevIndex());
+    }
+
+    /**
+     * Выполняет шаг назад, не создавая объектов Vertex.
+     *
+     * @return индекс вершины, возвращённой на шаг назад
+     * @throws NoSuchElementException если нечего откатывать
+     */
+    public int prevIndex() throws NoSuchElementException {
+        if (head == 0) {
             throw new NoSuchElementException("No previous element to revert");
         }
         
@@ -121,23 +250,63 @@ public class TopologicalSorter implements ExtendedIterator<Vertex> {
 
     /**
      * Реализует логику отката шага сортировки.
-     * Обновляет очередь и историю.
+     * Состояние на границе frontier не меняется: позиция сдвигается назад,
+     * а вершины, попавшие в очередь на откатываемом шаге, отсекаются по журналу.
      *
-     * @return вершина, возвращённая на шаг назад
+     * @return индекс вершины, возвращённой на шаг назад
      */
-    private Vertex iteratePrevStep() {
-        Vertex v = result.remove(result.size() - 1);
-        List<Vertex> addedNow = addedToQueueHistory.pop();
-        for (Vertex neighbor : v.getNeighbors()) {
-            inDegree.put(neighbor, inDegree.get(neighbor) + 1);
-        }
+    private int iteratePrevStep() {
+        undoneSteps++;
+        int v = order[--head];
+        queued -= addedCount[head];
+        return v;
+    }
 
-        for (Vertex neighbor : addedNow) {
-            queue.remove(neighbor);
+    /**
+     * Переходит к позиции, на которой отсортированы ровно первые step вершин.
+     * До самого дальнего выполненного шага переход стоит O(CHECKPOINT_INTERVAL):
+     * число готовых вершин берётся из ближайшей предыдущей контрольной точки
+     * и досчитывается по журналу. Дальше шаги выполняются обычным образом.
+     *
+     * @param step желаемое количество отсортированных вершин
+     * @return достигнутая позиция; меньше step, если дальше сортировку не пускает цикл
+     * @throws IndexOutOfBoundsException если step меньше 0 или больше числа вершин
+     */
+    public int seek(int step) {
+        Objects.checkIndex(step, csr.vertexCount() + 1);
+        int target = Math.min(step, frontier);
+        int checkpoint = target / CHECKPOINT_INTERVAL;
+        int count = checkpoints[checkpoint];
+        for (int i = checkpoint * CHECKPOINT_INTERVAL; i < target; i++) {
+            count += addedCount[i];
+        }
+        head = target;
+        queued = count;
+        while (head < step && hasNext()) {
+            iterateNextStep();
         }
+        return head;
+    }
 
-        queue.addFirst(v);
-        return v;
+    /**
+     * Возвращает счётчики работы сортировщика.
+     * Журнал занимает int на вершину и выделяется заранее, контрольные точки - int на CHECKPOINT_INTERVAL шагов.
+     *
+     * @return снимок счётчиков
+     */
+    public Stats stats() {
+        long journalBytes = (long) (addedCount.length + checkpoints.length) * Integer.BYTES;
+        return new Stats(steps, undoneSteps, edgesRelaxed, maxQueued, journalBytes);
+    }
+
+    /**
+     * Возвращает самый дальний выполненный шаг: до него {@link #seek(int)}
+     * переходит за O(CHECKPOINT_INTERVAL), дальше шаги приходится выполнять.
+     *
+     * @return количество вершин, отсортированных хотя бы однажды
+     */
+    public int frontier() {
+        return frontier;
     }
 
     /**
@@ -147,8 +316,123 @@ public class TopologicalSorter implements ExtendedIterator<Vertex> {
      * @return список отсортированных вершин
      */
     public List<Vertex> getSortedSoFar() {
-        return Collections.unmodifiableList(result);
+        return new AbstractList<Vertex>() {
+            @Override
+            public Vertex get(int index) {
+                Objects.checkIndex(index, head);
+                return csr.vertexAt(order[index]);
+            }
+
+            @Override
+            public int size() {
+                return head;
+            }
+        };
+    }
+
+    /**
+     * Возвращает количество уже отсортированных вершин
+     *
+     * @return длина отсортированного префикса
+     */
+    public int sortedCount() {
+        return head;
+    }
+
+    /**
+     * Возвращает индекс вершины на заданной позиции результата, не создавая объектов Vertex
+     *
+     * @param index позиция в отсортированном префиксе
+     * @return индекс вершины в CSR-графе
+     * @throws IndexOutOfBoundsException если позиция вне префикса
+     */
+    public int sortedIndexAt(int index) {
+        Objects.checkIndex(index, head);
+        return order[index];
+    }
+
+    /**
+     * Проверяет, обработаны ли все вершины графа.
+     * Если очередь опустела, а сортировка не завершена, граф содержит цикл.
+     *
+     * @return true, если отсортированы все вершины
+     */
+    public boolean isComplete() {
+        return head == csr.vertexCount();
+    }
+
+    /**
+     * Возвращает количество вершин, ещё не попавших в очередь.
+     * Когда hasNext() возвращает false, это вершины, заблокированные циклами.
+     *
+     * @return количество заблокированных вершин
+     */
+    public int getBlockedCount() {
+        return csr.vertexCount() - queued;
+    }
+
+    /**
+     * Возвращает вершины, ещё не попавшие в очередь.
+     * Когда hasNext() возвращает false, это вершины, заблокированные циклами.
+     *
+     * @return список заблокированных вершин в порядке индексов
+     */
+    public List<Vertex> getBlockedVertices() {
+        BitSet blocked = blockedSet();
+        List<Vertex> vertices = new ArrayList<>(blocked.cardinality());
+        for (int v = blocked.nextSetBit(0); v >= 0; v = blocked.nextSetBit(v + 1)) {
+            vertices.add(csr.vertexAt(v));
+        }
+        return vertices;
+    }
+
+    /**
+     * Возвращает индексы вершин, ещё не попавших в очередь, не создавая объектов Vertex.
+     *
+     * @return индексы заблокированных вершин по возрастанию
+     */
+    public int[] getBlockedIndices() {
+        return blockedSet().stream().toArray();
+    }
+
+    /**
+     * Ищет цикл среди вершин, ещё не попавших в очередь, за O(V + E).
+     * Любой цикл графа целиком лежит среди таких вершин.
+     *
+     * @return вершины цикла по порядку или пустой список, если цикла нет
+     */
+    public List<Vertex> findCycle() {
+        List<Vertex> cycle = new ArrayList<>();
+        if (getBlockedCount() > 0) {
+            for (int v : CycleDetector.findCycle(csr, blockedSet())) {
+                cycle.add(csr.vertexAt(v));
+            }
+        }
+        return cycle;
+    }
+
+    /**
+     * Проверяет, что сортировка, дошедшая до конца очереди, обработала все вершины
+     *
+     * @throws CycleException если часть вершин заблокирована циклом
+     */
+    public void requireComplete() {
+        if (!hasNext() && !isComplete()) {
+            throw new CycleException(
+                "Сортировка остановилась: заблокировано вершин - " + getBlockedCount() + ", цикл",
+                findCycle()
+            );
+        }
+    }
+
+    // Вершины, попавшие в очередь к позиции head, - начало массива enqueued
+    private BitSet blockedSet() {
+        BitSet blocked = new BitSet(csr.vertexCount());
+        blocked.set(0, csr.vertexCount());
+        for (int i = 0; i < queued; i++) {
+            blocked.clear(enqueued[i]);
+        }
+        return blocked;
     }
     
 }
-
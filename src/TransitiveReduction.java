@@ -0,0 +1,276 @@
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Транзитивное сокращение ациклического графа: удаляются рёбра a -> c,
+ * для которых есть и более длинный путь a -> ... -> c. Каждое ограничение
+ * порядка сохраняется, поэтому у сокращённого графа те же топологические
+ * сортировки, а списки смежности и рисунок заметно короче.
+ *
+ * Вершины обрабатываются в обратном топологическом порядке. Для каждой
+ * хранится множество достижимых вершин - битовая строка long[], где бит
+ * соответствует рангу вершины в топологическом порядке. Ребро v -> c лишнее,
+ * если c достижима из какого-нибудь потомка v: c не может быть достижима
+ * из самой себя, поэтому достаточно проверить бит c в объединении строк
+ * всех потомков. Вершины одного уровня (длина самого длинного пути до вершины)
+ * друг от друга не зависят и обрабатываются параллельно средствами fork-join.
+ *
+ * Полные строки занимают n * n / 8 байт, поэтому для больших графов ранги
+ * делятся на окна и граф проходится несколько раз, каждый раз только
+ * с битами своего окна; объём памяти не превышает MAX_BITSET_WORDS слов.
+ */
+public final class TransitiveReduction {
+    // Предел памяти под битовые строки: 2^24 слов long, то есть 128 МБ
+    private static final int MAX_BITSET_WORDS = 1 << 24;
+    // Меньшие отрезки уровня обрабатываются в текущем потоке
+    private static final int GRAIN = 256;
+
+    private final CsrGraph graph;
+    private final boolean[] redundant;
+    private final int removedCount;
+
+    /**
+     * Сокращает граф, используя общий пул fork-join
+     *
+     * @param graph ациклический граф
+     * @throws CycleException если граф содержит цикл
+     * @throws CancellationException если поток прерван во время работы
+     */
+    public TransitiveReduction(CsrGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Сокращает граф, используя заданный пул fork-join
+     *
+     * @param graph ациклический граф
+     * @param pool пул потоков
+     * @throws CycleException если граф содержит цикл
+     * @throws CancellationException если поток прерван во время работы
+     */
+    public TransitiveReduction(CsrGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.redundant = new boolean[graph.edgeCount()];
+
+        int n = graph.vertexCount();
+        int[] order = sortedOrder(graph);
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[order[i]] = i;
+        }
+        int[][] levels = levels(graph, order);
+
+        int totalWords = (n + 63) >>> 6;
+        int windowWords = Math.max(1, Math.min(totalWords, MAX_BITSET_WORDS / Math.max(1, n)));
+        long[] rows = new long[Math.max(1, n) * windowWords];
+        for (int lo = 0; lo < n; lo += windowWords << 6) {
+            Window window = new Window(rank, rows, windowWords, lo, Math.min(n, lo + (windowWords << 6)));
+            for (int level = levels.length - 1; level >= 0; level--) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Сокращение графа прервано");
+                }
+                int[] vertices = levels[level];
+                LevelTask task = new LevelTask(window, vertices, 0, vertices.length);
+                if (vertices.length <= GRAIN) {
+                    task.compute();
+                } else {
+                    pool.invoke(task);
+                }
+            }
+        }
+
+        int removed = 0;
+        for (boolean r : redundant) {
+            removed += r ? 1 : 0;
+        }
+        this.removedCount = removed;
+    }
+
+    /**
+     * Удаление рёбер не меняет длины путей, если у рёбер нет задержек,
+     * а длительности вершин неотрицательны: обходной путь тогда не короче ребра.
+     * В остальных случаях сокращение может изменить критический путь.
+     *
+     * @param graph граф
+     * @return true, если сокращение сохраняет критический путь
+     */
+    public static boolean preservesPathLengths(CsrGraph graph) {
+        if (graph.hasEdgeWeights()) {
+            return false;
+        }
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            if (graph.vertexWeight(v) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] sortedOrder(CsrGraph graph) {
+        TopologicalSorter sorter = new TopologicalSorter(graph);
+        int[] order = new int[graph.vertexCount()];
+        int count = 0;
+        while (sorter.hasNext()) {
+            order[count++] = sorter.nextIndex();
+        }
+        sorter.requireComplete();
+        return order;
+    }
+
+    // Уровень вершины - длина самого длинного пути до неё; все рёбра идут на более глубокие уровни
+    private static int[][] levels(CsrGraph graph, int[] order) {
+        int n = graph.vertexCount();
+        int[] level = new int[n];
+        int depth = 0;
+        for (int v : order) {
+            depth = Math.max(depth, level[v] + 1);
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                int w = graph.target(e);
+                level[w] = Math.max(level[w], level[v] + 1);
+            }
+        }
+
+        int[] sizes = new int[depth];
+        for (int v = 0; v < n; v++) {
+            sizes[level[v]]++;
+        }
+        int[][] levels = new int[depth][];
+        for (int l = 0; l < depth; l++) {
+            levels[l] = new int[sizes[l]];
+        }
+        Arrays.fill(sizes, 0);
+        for (int v : order) {
+            levels[level[v]][sizes[level[v]]++] = v;
+        }
+        return levels;
+    }
+
+    /**
+     * @return исходный граф
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return количество удалённых (лишних) рёбер
+     */
+    public int removedCount() {
+        return removedCount;
+    }
+
+    /**
+     * @param e индекс ребра исходного графа в порядке CSR
+     * @return true, если ребро следует из других и удаляется
+     */
+    public boolean isRedundant(int e) {
+        return redundant[e];
+    }
+
+    /**
+     * Строит сокращённый граф с теми же вершинами, координатами и весами;
+     * таблицы вершин не копируются. Порядок оставшихся рёбер каждой вершины сохраняется.
+     *
+     * @return граф без лишних рёбер
+     */
+    public CsrGraph reducedGraph() {
+        int n = graph.vertexCount();
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[graph.edgeCount() - removedCount];
+        double[] edgeWeights = graph.hasEdgeWeights() ? new double[targets.length] : null;
+
+        int k = 0;
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                if (redundant[e]) {
+                    continue;
+                }
+                if (edgeWeights != null) {
+                    edgeWeights[k] = graph.edgeWeight(e);
+                }
+                targets[k++] = graph.target(e);
+            }
+            offsets[v + 1] = k;
+        }
+        return graph.withEdges(offsets, targets, edgeWeights);
+    }
+
+    /**
+     * Один проход по окну рангов [lo, hi): строка вершины с рангом r
+     * лежит в rows с позиции r * words и содержит только биты окна
+     */
+    private record Window(int[] rank, long[] rows, int words, int lo, int hi) {}
+
+    /**
+     * Обработка отрезка вершин одного уровня
+     */
+    private final class LevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Window window;
+        private final int[] vertices;
+        private final int from;
+        private final int to;
+
+        LevelTask(Window window, int[] vertices, int from, int to) {
+            this.window = window;
+            this.vertices = vertices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LevelTask(window, vertices, from, mid), new LevelTask(window, vertices, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                reduce(vertices[i]);
+            }
+        }
+
+        private void reduce(int v) {
+            int[] rank = window.rank();
+            long[] rows = window.rows();
+            int words = window.words();
+            int lo = window.lo();
+            int hi = window.hi();
+            // Вершина достигает только вершин с большим рангом
+            if (rank[v] + 1 >= hi) {
+                return;
+            }
+            int row = rank[v] * words;
+            Arrays.fill(rows, row, row + words, 0L);
+
+            // Объединение строк потомков; строка потомка c непуста только правее бита c
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                int c = rank[graph.target(e)];
+                if (c + 1 >= hi) {
+                    continue;
+                }
+                int childRow = c * words;
+                for (int w = (Math.max(c + 1, lo) - lo) >>> 6; w < words; w++) {
+                    rows[row + w] |= rows[childRow + w];
+                }
+            }
+
+            // Потомок из окна, достижимый через другого потомка, - лишнее ребро
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                int c = rank[graph.target(e)];
+                if (c >= lo && c < hi && (rows[row + ((c - lo) >>> 6)] & (1L << (c - lo))) != 0) {
+                    redundant[e] = true;
+                }
+            }
+            for (int e = graph.firstEdge(v); e < graph.lastEdge(v); e++) {
+                int c = rank[graph.target(e)];
+                if (c >= lo && c < hi) {
+                    rows[row + ((c - lo) >>> 6)] |= 1L << (c - lo);
+                }
+            }
+        }
+    }
+}
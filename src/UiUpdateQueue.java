@@ -0,0 +1,55 @@
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Очередь обновлений интерфейса из фоновых задач.
+ * Фоновый поток кладёт в очередь небольшие порции работы, а FX-поток
+ * выполняет не больше MAX_PER_PULSE порций за кадр. Поэтому большой
+ * результат (например, вся сортировка) доходит до экрана за несколько кадров,
+ * и окно не замирает. Порции выполняются строго в порядке добавления.
+ */
+public final class UiUpdateQueue {
+    private static final int MAX_PER_PULSE = 8;
+
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    /**
+     * Добавляет порцию работы; может вызываться из любого потока
+     *
+     * @param update действие, выполняемое в FX-потоке
+     */
+    public void post(Runnable update) {
+        pending.add(update);
+        if (running.compareAndSet(false, true)) {
+            Platform.runLater(timer::start);
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < MAX_PER_PULSE; i++) {
+            Runnable update = pending.poll();
+            if (update == null) {
+                break;
+            }
+            update.run();
+        }
+        if (pending.isEmpty()) {
+            timer.stop();
+            running.set(false);
+            // Порция могла прийти между проверкой и сбросом флага
+            if (!pending.isEmpty() && running.compareAndSet(false, true)) {
+                timer.start();
+            }
+        }
+    }
+}
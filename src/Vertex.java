@@ -1,13 +1,23 @@
 import java.util.*;
 
 /**
- * Представляет вершину графа с координатами и списком смежных вершин
+ * Представляет вершину графа с координатами и списком смежных вершин.
+ * Вершина может иметь вес (например, длительность работы), а каждое
+ * исходящее ребро - свой вес (задержку между работами).
  */
 public class  Vertex {
+    /** Вес вершины, если он не задан */
+    public static final double DEFAULT_WEIGHT = 1.0;
+    /** Вес ребра, если он не задан */
+    public static final double DEFAULT_EDGE_WEIGHT = 0.0;
+
     private final int x, y;
     private final String name;
+    private final double weight;
     private final int _hash_code;
-    private List<Vertex> neighbors;
+    private final ArrayList<Vertex> neighbors;
+    // Веса рёбер в порядке соседей; null, пока все веса по умолчанию
+    private double[] edgeWeights;
 
     /**
      * Создает вершину только с именем
@@ -28,9 +38,23 @@ public class  Vertex {
      * @param y координата Y
      */
     public Vertex (String name, int x, int y) {
+        this(name, x, y, DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Создает вершину с указанным именем, координатами и весом.
+     * Вес не участвует в сравнении вершин.
+     * 
+     * @param name имя вершины
+     * @param x координата X
+     * @param y координата Y
+     * @param weight вес вершины
+     */
+    public Vertex (String name, int x, int y, double weight) {
         this.name = name;
         this.x = x;
         this.y = y;
+        this.weight = weight;
         this._hash_code = _calc_hash_code();
         this.neighbors = new ArrayList<>();
     }
@@ -50,6 +74,11 @@ public class  Vertex {
      */
     public String getName() { return name; }
 
+    /**
+     * @return вес вершины
+     */
+    public double getWeight() { return weight; }
+
     /**
      * Возвращает список соседних вершин, в которые есть исходящие рёбра.
      * Список недоступен для изменения извне.
@@ -62,29 +91,123 @@ public class  Vertex {
 
     /**
      * Добавляет смежную вершину (рёберное соединение).
+     * Снаружи пакета рёбра добавляются только через Graph.addEdge(s),
+     * иначе множество рёбер графа и его наблюдатели не узнают о ребре.
+     * 
+     * @param neighbor вершина-сосед
+     */
+    void addNeighbor(Vertex neighbor) {
+        addNeighbor(neighbor, DEFAULT_EDGE_WEIGHT);
+    } 
+
+    /**
+     * Добавляет смежную вершину с весом ребра.
      * 
      * @param neighbor вершина-сосед
+     * @param weight вес ребра
      */
-    public void addNeighbor(Vertex neighbor) {
+    void addNeighbor(Vertex neighbor, double weight) {
         if (neighbors.contains(neighbor)) {
             throw new IllegalArgumentException(
                 "Сосед уже существует: " + neighbor.getName() + " для вершины " + this.name
             );
         }
+        appendNeighbor(neighbor, weight);
+    }
+
+    /**
+     * Добавляет смежную вершину без проверки на повтор.
+     * Вызывается графом, который сам следит за уникальностью рёбер.
+     * 
+     * @param neighbor вершина-сосед
+     */
+    void appendNeighbor(Vertex neighbor) {
+        appendNeighbor(neighbor, DEFAULT_EDGE_WEIGHT);
+    }
+
+    /**
+     * Добавляет смежную вершину с весом ребра без проверки на повтор.
+     * 
+     * @param neighbor вершина-сосед
+     * @param weight вес ребра
+     */
+    void appendNeighbor(Vertex neighbor, double weight) {
+        int index = neighbors.size();
         neighbors.add(neighbor);
-    } 
+        if (edgeWeights == null && weight == DEFAULT_EDGE_WEIGHT) {
+            return;
+        }
+        if (edgeWeights == null) {
+            edgeWeights = new double[Math.max(4, index + 1)];
+            Arrays.fill(edgeWeights, DEFAULT_EDGE_WEIGHT);
+        } else if (index == edgeWeights.length) {
+            int capacity = edgeWeights.length << 1;
+            edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+            Arrays.fill(edgeWeights, index, capacity, DEFAULT_EDGE_WEIGHT);
+        }
+        edgeWeights[index] = weight;
+    }
+
+    /**
+     * Возвращает вес ребра к соседу по его месту в списке соседей.
+     * 
+     * @param index позиция соседа в getNeighbors()
+     * @return вес ребра
+     */
+    public double getEdgeWeight(int index) {
+        Objects.checkIndex(index, neighbors.size());
+        return edgeWeights != null && index < edgeWeights.length ? edgeWeights[index] : DEFAULT_EDGE_WEIGHT;
+    }
+
+    /**
+     * Возвращает вес ребра к соседу.
+     * 
+     * @param neighbor вершина-сосед
+     * @return вес ребра
+     * @throws IllegalArgumentException если ребра к соседу нет
+     */
+    public double getEdgeWeight(Vertex neighbor) {
+        int index = getNeighbors().indexOf(neighbor);
+        if (index < 0) {
+            throw new IllegalArgumentException(
+                "Ребро не существует: " + name + " -> " + neighbor.getName()
+            );
+        }
+        return getEdgeWeight(index);
+    }
+
+    /**
+     * Резервирует место под заданное число соседей.
+     * 
+     * @param capacity ожидаемое количество соседей
+     */
+    void ensureNeighborCapacity(int capacity) {
+        neighbors.ensureCapacity(capacity);
+    }
 
     /**
      * Удаляет указанного соседа из списка смежных вершин.
+     * Вызывается графом из removeEdge, чтобы множество рёбер графа
+     * и его наблюдатели не расходились со списком соседей.
      * 
      * @param neighbor вершина-сосед, которую нужно удалить
      */
-    public void removeNeighbor(Vertex neighbor) {
-        neighbors.remove(neighbor);
+    void removeNeighbor(Vertex neighbor) {
+        int index = neighbors.indexOf(neighbor);
+        if (index < 0) {
+            return;
+        }
+        neighbors.remove(index);
+        if (edgeWeights != null && index < edgeWeights.length) {
+            System.arraycopy(edgeWeights, index + 1, edgeWeights, index, edgeWeights.length - index - 1);
+            edgeWeights[edgeWeights.length - 1] = DEFAULT_EDGE_WEIGHT;
+        }
     }
 
     /**
-     * Проверяет равенство вершин по предрассчитанному хеш-коду.
+     * Проверяет равенство вершин по имени и координатам.
+     * Предрассчитанный хеш-код используется только для быстрого отсечения.
+     * Представления вершин CsrGraph равны обычным вершинам с теми же данными.
      * 
      * @param obj объект для сравнения
      * @return true, если вершины считаются равными
@@ -95,12 +218,14 @@ public class  Vertex {
             return true;
         }
 
-        if (obj == null || getClass() != obj.getClass()) {
+        if (!(obj instanceof Vertex vertex)) {
             return false;
         }
 
-        Vertex vertex = (Vertex) obj;
-        return _hash_code == vertex._hash_code;
+        return _hash_code == vertex._hash_code
+            && x == vertex.x
+            && y == vertex.y
+            && Objects.equals(name, vertex.name);
     }
 
     /**
@@ -130,7 +255,7 @@ public class  Vertex {
     @Override
     public String toString() {
         return String.format("Vertex(%s (%d, %d) -> %s)", name, x, y,
-            neighbors.stream().map(Vertex::getName).toList());
+            getNeighbors().stream().map(Vertex::getName).toList());
     }
 
 }
@@ -0,0 +1,375 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Компактная таблица вершин, адресуемых индексами 0..n-1.
+ *
+ * Имена хранятся подряд в одной таблице UTF-8 байтов со смещениями, поэтому
+ * у вершины нет собственных объектов String; координаты упакованы по две
+ * в один long, веса заводятся при первом весе, отличном от значения
+ * по умолчанию. На вершину уходит 12 байт плюс длина имени.
+ *
+ * Таблицы могут лежать в куче (координаты - в long[]) или вне её
+ * в прямых буферах, тогда сборщик мусора их не просматривает. Режим
+ * по умолчанию задаётся свойством -Dtopo.offHeapVertices=true.
+ *
+ * Поиск по имени идёт по хеш-таблице индексов, построенной при первом
+ * запросе: строки для всех вершин при этом не создаются.
+ */
+public final class VertexStore {
+    private static final boolean OFF_HEAP_DEFAULT = Boolean.getBoolean("topo.offHeapVertices");
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_NAME_BYTES = Integer.MAX_VALUE - 8;
+
+    private final boolean offHeap;
+    private int size;
+
+    // Имя вершины v - байты nameBytes на отрезке [nameOffsets[v], nameOffsets[v + 1])
+    private ByteBuffer nameBytes;
+    private IntBuffer nameOffsets;
+    // x в старших 32 битах, y в младших
+    private LongBuffer coordinates;
+    // Веса вершин или null, если у всех значение по умолчанию
+    private DoubleBuffer weights;
+
+    // Открытая адресация: индекс вершины + 1, 0 - пустая ячейка
+    private int[] nameIndex;
+
+    /**
+     * Создает пустую таблицу в режиме по умолчанию
+     */
+    public VertexStore() {
+        this(INITIAL_CAPACITY, OFF_HEAP_DEFAULT);
+    }
+
+    /**
+     * Создает пустую таблицу
+     *
+     * @param expectedVertices ожидаемое количество вершин
+     * @param offHeap хранить ли таблицы вне кучи
+     */
+    public VertexStore(int expectedVertices, boolean offHeap) {
+        this.offHeap = offHeap;
+        int capacity = Math.max(INITIAL_CAPACITY, expectedVertices);
+        nameBytes = bytes((int) Math.min(MAX_NAME_BYTES, capacity * 8L));
+        nameOffsets = ints(capacity + 1);
+        coordinates = longs(capacity);
+    }
+
+    /**
+     * Добавляет вершину с весом по умолчанию
+     *
+     * @param name имя вершины
+     * @param x координата X
+     * @param y координата Y
+     * @return индекс добавленной вершины
+     */
+    public int add(String name, int x, int y) {
+        return add(name, x, y, Vertex.DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Добавляет вершину
+     *
+     * @param name имя вершины
+     * @param x координата X
+     * @param y координата Y
+     * @param weight вес вершины
+     * @return индекс добавленной вершины
+     * @throws IllegalArgumentException если имена всех вершин не помещаются в 2 ГБ
+     */
+    public int add(String name, int x, int y, double weight) {
+        Objects.requireNonNull(name, "Имя вершины не может быть null");
+        if (size == coordinates.capacity()) {
+            growVertices(Math.max(INITIAL_CAPACITY, coordinates.capacity() << 1));
+        }
+        if (weights == null && weight != Vertex.DEFAULT_WEIGHT) {
+            weights = doubles(coordinates.capacity());
+            for (int i = 0; i < size; i++) {
+                weights.put(i, Vertex.DEFAULT_WEIGHT);
+            }
+        }
+
+        int start = nameOffsets.get(size);
+        int end = appendName(name, start);
+        nameOffsets.put(size + 1, end);
+        coordinates.put(size, pack(x, y));
+        if (weights != null) {
+            weights.put(size, weight);
+        }
+        int id = size++;
+        if (nameIndex != null) {
+            if (size * 2 > nameIndex.length) {
+                nameIndex = null;
+            } else {
+                insertName(id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Удаляет все вершины, сохраняя выделенную память
+     */
+    public void clear() {
+        size = 0;
+        weights = null;
+        nameIndex = null;
+    }
+
+    /**
+     * Освобождает запас, оставшийся после добавления вершин
+     */
+    public void trimToSize() {
+        growVertices(size);
+        int length = nameOffsets.get(size);
+        if (length < nameBytes.capacity()) {
+            nameBytes = copyBytes(nameBytes, length, length);
+        }
+    }
+
+    /**
+     * @return количество вершин
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true, если таблицы лежат вне кучи
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return занятая таблицами память в байтах, включая запас
+     */
+    public long memoryBytes() {
+        long bytes = nameBytes.capacity()
+            + (long) nameOffsets.capacity() * Integer.BYTES
+            + (long) coordinates.capacity() * Long.BYTES;
+        if (weights != null) {
+            bytes += (long) weights.capacity() * Double.BYTES;
+        }
+        if (nameIndex != null) {
+            bytes += (long) nameIndex.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return имя вершины
+     */
+    public String name(int v) {
+        Objects.checkIndex(v, size);
+        int from = nameOffsets.get(v);
+        byte[] utf8 = new byte[nameOffsets.get(v + 1) - from];
+        nameBytes.get(from, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return координата X вершины
+     */
+    public int x(int v) {
+        Objects.checkIndex(v, size);
+        return (int) (coordinates.get(v) >> 32);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return координата Y вершины
+     */
+    public int y(int v) {
+        Objects.checkIndex(v, size);
+        return (int) coordinates.get(v);
+    }
+
+    /**
+     * @param v индекс вершины
+     * @return вес вершины
+     */
+    public double weight(int v) {
+        Objects.checkIndex(v, size);
+        return weights != null ? weights.get(v) : Vertex.DEFAULT_WEIGHT;
+    }
+
+    /**
+     * @return true, если хотя бы у одной вершины вес отличен от значения по умолчанию
+     */
+    public boolean hasWeights() {
+        return weights != null;
+    }
+
+    /**
+     * Возвращает индекс вершины по имени, не создавая строк для вершин
+     *
+     * @param name имя вершины
+     * @return индекс первой вершины с заданным именем или -1, если такой вершины нет
+     */
+    public int indexOf(String name) {
+        if (nameIndex == null) {
+            buildNameIndex();
+        }
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        int mask = nameIndex.length - 1;
+        for (int i = hash(utf8) & mask; nameIndex[i] != 0; i = (i + 1) & mask) {
+            int v = nameIndex[i] - 1;
+            if (nameEquals(v, utf8)) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    // Кодирует имя в UTF-8 с позиции start; ASCII-имена пишутся без промежуточного массива
+    private int appendName(String name, int start) {
+        int length = name.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = name.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            ensureNameCapacity(start, length);
+            for (int i = 0; i < length; i++) {
+                nameBytes.put(start + i, (byte) name.charAt(i));
+            }
+            return start + length;
+        }
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        ensureNameCapacity(start, utf8.length);
+        nameBytes.put(start, utf8);
+        return start + utf8.length;
+    }
+
+    private void ensureNameCapacity(int start, int length) {
+        long needed = (long) start + length;
+        if (needed > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Имена вершин больше 2 ГБ не поддерживаются");
+        }
+        if (needed > nameBytes.capacity()) {
+            int capacity = (int) Math.min(MAX_NAME_BYTES, Math.max(needed, (long) nameBytes.capacity() << 1));
+            nameBytes = copyBytes(nameBytes, start, capacity);
+        }
+    }
+
+    // Меняет вместимость таблиц вершин (capacity >= size)
+    private void growVertices(int capacity) {
+        IntBuffer offsets = ints(capacity + 1);
+        offsets.put(0, nameOffsets, 0, size + 1);
+        nameOffsets = offsets;
+        LongBuffer packed = longs(capacity);
+        packed.put(0, coordinates, 0, size);
+        coordinates = packed;
+        if (weights != null) {
+            DoubleBuffer copy = doubles(capacity);
+            copy.put(0, weights, 0, size);
+            weights = copy;
+        }
+    }
+
+    private void buildNameIndex() {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        nameIndex = new int[capacity];
+        for (int v = 0; v < size; v++) {
+            insertName(v);
+        }
+    }
+
+    // Вершина с уже встречавшимся именем не заменяет первую
+    private void insertName(int v) {
+        int from = nameOffsets.get(v);
+        int to = nameOffsets.get(v + 1);
+        int h = 1;
+        for (int j = from; j < to; j++) {
+            h = 31 * h + nameBytes.get(j);
+        }
+        int mask = nameIndex.length - 1;
+        int i = mix(h) & mask;
+        while (nameIndex[i] != 0) {
+            if (sameName(nameIndex[i] - 1, from, to)) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        nameIndex[i] = v + 1;
+    }
+
+    private boolean sameName(int v, int from, int to) {
+        int start = nameOffsets.get(v);
+        if (nameOffsets.get(v + 1) - start != to - from) {
+            return false;
+        }
+        for (int j = 0; j < to - from; j++) {
+            if (nameBytes.get(start + j) != nameBytes.get(from + j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean nameEquals(int v, byte[] utf8) {
+        int start = nameOffsets.get(v);
+        if (nameOffsets.get(v + 1) - start != utf8.length) {
+            return false;
+        }
+        for (int j = 0; j < utf8.length; j++) {
+            if (nameBytes.get(start + j) != utf8[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] utf8) {
+        return mix(Arrays.hashCode(utf8));
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private ByteBuffer copyBytes(ByteBuffer source, int length, int capacity) {
+        ByteBuffer copy = bytes(capacity);
+        copy.put(0, source, 0, length);
+        return copy;
+    }
+
+    private ByteBuffer bytes(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private IntBuffer ints(int capacity) {
+        return offHeap
+            ? ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+            : IntBuffer.allocate(capacity);
+    }
+
+    private LongBuffer longs(int capacity) {
+        return offHeap
+            ? ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+            : LongBuffer.allocate(capacity);
+    }
+
+    private DoubleBuffer doubles(int capacity) {
+        return offHeap
+            ? ByteBuffer.allocateDirect(capacity * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer()
+            : DoubleBuffer.allocate(capacity);
+    }
+}